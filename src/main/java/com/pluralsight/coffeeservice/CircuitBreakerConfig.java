@@ -0,0 +1,28 @@
+package com.pluralsight.coffeeservice;
+
+import java.time.Clock;
+
+import com.pluralsight.coffeeservice.repository.DatabaseCircuitBreaker;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CircuitBreakerProperties.class)
+public class CircuitBreakerConfig {
+    @Bean
+    public DatabaseCircuitBreaker databaseCircuitBreaker(CircuitBreakerProperties properties,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new DatabaseCircuitBreaker(properties, Clock.systemUTC(), meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public LastKnownGoodCache lastKnownGoodCache(CircuitBreakerProperties properties) {
+        return new LastKnownGoodCache(properties.getCacheSize());
+    }
+}
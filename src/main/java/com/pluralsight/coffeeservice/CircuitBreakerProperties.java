@@ -0,0 +1,101 @@
+package com.pluralsight.coffeeservice;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Thresholds of the circuit breaker around the coffee database, bound from the <code>coffee.circuit-breaker</code>
+ * properties. The breaker opens when, over the last <code>sliding-window-size</code> calls (and at least
+ * <code>minimum-calls</code> calls), the rate of failed calls or of calls slower than <code>slow-call-duration</code>
+ * reaches its threshold. It stays open for <code>open-duration</code> and then lets
+ * <code>half-open-calls</code> trial calls through; it closes if they all succeed and reopens otherwise.
+ */
+@ConfigurationProperties(prefix = "coffee.circuit-breaker")
+public class CircuitBreakerProperties {
+    private boolean enabled = true;
+    private int slidingWindowSize = 20;
+    private int minimumCalls = 10;
+    private double failureRateThreshold = 0.5;
+    private Duration slowCallDuration = Duration.ofSeconds(1);
+    private double slowCallRateThreshold = 0.5;
+    private Duration openDuration = Duration.ofSeconds(10);
+    private int halfOpenCalls = 3;
+
+    /**
+     * The maximum number of coffees kept as last known good values to serve while the breaker is open
+     */
+    private int cacheSize = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(Duration slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+}
@@ -0,0 +1,27 @@
+package com.pluralsight.coffeeservice;
+
+import java.time.Clock;
+
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch;
+import com.pluralsight.coffeeservice.hotkeys.HotKeysEndpoint;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "coffee.hotkeys", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(HotKeyProperties.class)
+public class HotKeyConfig {
+    @Bean
+    public HotKeySketch hotKeySketch(HotKeyProperties properties, LastKnownGoodCache lastKnownGoodCache) {
+        return new HotKeySketch(properties, Clock.systemUTC(), properties.isPinHottest() ? lastKnownGoodCache : null);
+    }
+
+    @Bean
+    public HotKeysEndpoint hotKeysEndpoint(HotKeySketch hotKeySketch) {
+        return new HotKeysEndpoint(hotKeySketch);
+    }
+}
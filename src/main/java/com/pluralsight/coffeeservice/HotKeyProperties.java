@@ -0,0 +1,83 @@
+package com.pluralsight.coffeeservice;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the hot key sketch, bound from the <code>coffee.hotkeys</code> properties. The sketch counts reads of
+ * each coffee ID in <code>depth</code> rows of <code>width</code> counters, tracks the <code>top-k</code> most read
+ * IDs, and halves every count each <code>decay-interval</code>. With <code>pin-hottest</code> set, the
+ * <code>pinned-entries</code> hottest coffees, at most as many as the cache holds, are never evicted from the last
+ * known good cache, which serves reads only while the database is unavailable.
+ */
+@ConfigurationProperties(prefix = "coffee.hotkeys")
+public class HotKeyProperties {
+    private boolean enabled = true;
+    private int depth = 4;
+
+    /**
+     * Counters per row, rounded up to a power of two
+     */
+    private int width = 4096;
+    private int topK = 20;
+    private Duration decayInterval = Duration.ofSeconds(60);
+    private boolean pinHottest = false;
+    private int pinnedEntries = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public Duration getDecayInterval() {
+        return decayInterval;
+    }
+
+    public void setDecayInterval(Duration decayInterval) {
+        this.decayInterval = decayInterval;
+    }
+
+    public boolean isPinHottest() {
+        return pinHottest;
+    }
+
+    public void setPinHottest(boolean pinHottest) {
+        this.pinHottest = pinHottest;
+    }
+
+    public int getPinnedEntries() {
+        return pinnedEntries;
+    }
+
+    public void setPinnedEntries(int pinnedEntries) {
+        this.pinnedEntries = pinnedEntries;
+    }
+}
@@ -0,0 +1,40 @@
+package com.pluralsight.coffeeservice;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import com.pluralsight.coffeeservice.repository.shard.ShardedCoffeeRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the sharded coffee store when <code>coffee.sharding.enabled=true</code>. The shard data sources are
+ * private to the store; the primary data source used by JPA is unaffected.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(prefix = "coffee.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+    @Bean
+    public ShardedCoffeeRepository shardedCoffeeRepository(ShardingProperties properties,
+            @Value("${coffee.batch.chunk-size:500}") int batchChunkSize) {
+        List<DataSource> dataSources = properties.getShards().stream()
+                .<DataSource>map(shard -> DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build())
+                .toList();
+
+        ShardedCoffeeRepository repository = new ShardedCoffeeRepository(dataSources, properties.getIdBlockSize(),
+                batchChunkSize);
+        repository.initializeSchema();
+        return repository;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pluralsight.coffeeservice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the sharded coffee store, bound from the <code>coffee.sharding</code> properties, for example:
+ * <pre>
+ * coffee.sharding.enabled=true
+ * coffee.sharding.shards[0].url=jdbc:mysql://coffee-db-0:3306/coffees
+ * coffee.sharding.shards[1].url=jdbc:mysql://coffee-db-1:3306/coffees
+ * </pre>
+ * The order of the shards is significant: a coffee's ID determines its shard index, so shards may not be reordered,
+ * added or removed without migrating the data.
+ */
+@ConfigurationProperties(prefix = "coffee.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+
+    /**
+     * The number of IDs each shard reserves from its sequence table at a time
+     */
+    private int idBlockSize = 50;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
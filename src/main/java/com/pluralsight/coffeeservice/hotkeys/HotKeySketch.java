@@ -0,0 +1,234 @@
+package com.pluralsight.coffeeservice.hotkeys;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.pluralsight.coffeeservice.HotKeyProperties;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Finds the most read coffee IDs in fixed memory.
+ * <p>
+ * Every read increments one counter in each of <code>depth</code> rows of a count-min sketch; the smallest of those
+ * counters estimates how often the ID was read, never less than the true count. IDs whose estimate exceeds that of
+ * the current <code>top-k</code>-th hottest ID are tracked as heavy hitters, in a map that grows to at most twice
+ * <code>top-k</code> before it is pruned. Recording a read takes no locks: the counters are atomic, the pruning is
+ * skipped by a thread that cannot get its lock immediately, and tracked IDs only increment a striped counter.
+ * <p>
+ * Every <code>decay-interval</code> all counts are halved, so that the estimates follow current traffic, and the
+ * read rate of each heavy hitter over the last interval is computed. When a cache is given, the hottest IDs are
+ * then pinned in it. That cache is the last known good cache: the service has no cache that answers reads while the
+ * database is available, so pinning keeps the hottest coffees servable during an outage rather than making their
+ * reads faster.
+ */
+public class HotKeySketch {
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+    private final int topK;
+    private final Duration decayInterval;
+    private final Clock clock;
+    private final LastKnownGoodCache pinnedCache;
+    private final int pinnedEntries;
+
+    private final ConcurrentHashMap<Long, HotKey> hotKeys = new ConcurrentHashMap<>();
+    private final ReentrantLock pruneLock = new ReentrantLock();
+
+    /**
+     * The estimate an ID must exceed to be tracked, the estimate of the <code>top-k</code>-th hottest ID at the last
+     * pruning
+     */
+    private volatile long admissionThreshold;
+    private volatile long intervalStart;
+
+    public HotKeySketch(HotKeyProperties properties, Clock clock, LastKnownGoodCache pinnedCache) {
+        this.depth = properties.getDepth();
+        this.width = Integer.highestOneBit(Math.max(properties.getWidth() - 1, 1)) << 1;
+        this.counters = new AtomicLongArray(depth * width);
+        this.topK = properties.getTopK();
+        this.decayInterval = properties.getDecayInterval();
+        this.clock = clock;
+        this.pinnedCache = pinnedCache;
+        this.pinnedEntries = properties.getPinnedEntries();
+        this.intervalStart = clock.millis();
+    }
+
+    private static final class HotKey {
+        private final long id;
+        private final long trackedSince;
+        private final LongAdder hits = new LongAdder();
+        private volatile long previousHits;
+        private volatile long previousMillis;
+
+        private HotKey(long id, long trackedSince) {
+            this.id = id;
+            this.trackedSince = trackedSince;
+        }
+    }
+
+    public record HotKeyStats(long id, long estimatedCount, double ratePerSecond) {
+    }
+
+    public void record(long id) {
+        // Derive the row indexes from two halves of one hash (Kirsch-Mitzenmacher double hashing)
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + ((h1 + row * h2) & (width - 1));
+            estimate = Math.min(estimate, counters.incrementAndGet(index));
+        }
+
+        HotKey hotKey = hotKeys.get(id);
+        if (hotKey == null && estimate > admissionThreshold) {
+            hotKey = hotKeys.computeIfAbsent(id, key -> new HotKey(key, clock.millis()));
+            if (hotKeys.size() > 2 * topK && pruneLock.tryLock()) {
+                try {
+                    prune();
+                } finally {
+                    pruneLock.unlock();
+                }
+            }
+        }
+        if (hotKey != null) {
+            hotKey.hits.increment();
+        }
+    }
+
+    /**
+     * Returns the estimated number of reads of the ID, decayed by the intervals that have passed since
+     */
+    public long estimate(long id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + ((h1 + row * h2) & (width - 1))));
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the hottest IDs, hottest first, with their rates over the last interval and the current one
+     */
+    public List<HotKeyStats> topK() {
+        long now = clock.millis();
+        return hotKeys.values().stream()
+                .map(hotKey -> new HotKeyStats(hotKey.id, estimate(hotKey.id), ratePerSecond(hotKey, now)))
+                .sorted(Comparator.comparingLong(HotKeyStats::estimatedCount).reversed())
+                .limit(topK)
+                .toList();
+    }
+
+    /**
+     * Halves every count, rolls the read rates of the heavy hitters over to a new interval, and pins the hottest
+     * IDs in the cache if there is one
+     */
+    @Scheduled(fixedRateString = "${coffee.hotkeys.decay-interval:60s}",
+            initialDelayString = "${coffee.hotkeys.decay-interval:60s}")
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+
+        long now = clock.millis();
+        long start = intervalStart;
+        hotKeys.values().forEach(hotKey -> {
+            hotKey.previousHits = hotKey.hits.sumThenReset();
+            hotKey.previousMillis = now - Math.max(start, hotKey.trackedSince);
+        });
+        intervalStart = now;
+
+        pruneLock.lock();
+        try {
+            prune();
+        } finally {
+            pruneLock.unlock();
+        }
+
+        if (pinnedCache != null) {
+            pinnedCache.pin(topK().stream().limit(pinnedEntries).map(HotKeyStats::id).toList());
+        }
+    }
+
+    /**
+     * Forgets all reads counted so far
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        hotKeys.clear();
+        admissionThreshold = 0;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public Duration getDecayInterval() {
+        return decayInterval;
+    }
+
+    /**
+     * The memory held by the counters; the heavy hitters add about 100 bytes each
+     */
+    public long getCounterBytes() {
+        return 8L * counters.length();
+    }
+
+    public Set<Long> getPinned() {
+        return pinnedCache != null ? pinnedCache.getPinned() : Set.of();
+    }
+
+    /**
+     * Keeps the <code>top-k</code> IDs with the highest estimates, and raises the admission threshold to the lowest
+     * of them. Must be called holding the prune lock.
+     */
+    private void prune() {
+        List<Map.Entry<Long, Long>> ranked = hotKeys.keySet().stream()
+                .map(id -> Map.entry(id, estimate(id)))
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .toList();
+        for (int i = topK; i < ranked.size(); i++) {
+            hotKeys.remove(ranked.get(i).getKey());
+        }
+        ranked.stream()
+                .limit(topK)
+                .filter(entry -> entry.getValue() == 0)
+                .forEach(entry -> hotKeys.remove(entry.getKey()));
+        admissionThreshold = ranked.size() >= topK ? ranked.get(topK - 1).getValue() : 0;
+    }
+
+    private double ratePerSecond(HotKey hotKey, long now) {
+        long hits = hotKey.previousHits + hotKey.hits.sum();
+        long millis = hotKey.previousMillis + now - Math.max(intervalStart, hotKey.trackedSince);
+        return millis <= 0 ? 0 : hits * 1000.0 / millis;
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads consecutive IDs over the whole hash range
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,34 @@
+package com.pluralsight.coffeeservice.hotkeys;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Exposes the hottest coffee IDs at <code>/actuator/hotkeys</code>.
+ */
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+    private final HotKeySketch hotKeySketch;
+
+    public HotKeysEndpoint(HotKeySketch hotKeySketch) {
+        this.hotKeySketch = hotKeySketch;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> sketch = new LinkedHashMap<>();
+        sketch.put("depth", hotKeySketch.getDepth());
+        sketch.put("width", hotKeySketch.getWidth());
+        sketch.put("counterBytes", hotKeySketch.getCounterBytes());
+        sketch.put("decayInterval", hotKeySketch.getDecayInterval().toString());
+
+        Map<String, Object> hotKeys = new LinkedHashMap<>();
+        hotKeys.put("topK", hotKeySketch.topK());
+        hotKeys.put("pinned", hotKeySketch.getPinned());
+        hotKeys.put("sketch", sketch);
+        return hotKeys;
+    }
+}
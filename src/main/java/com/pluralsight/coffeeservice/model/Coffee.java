@@ -1,11 +1,19 @@
 package com.pluralsight.coffeeservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 
 @Entity
+@DynamicUpdate
+@SQLRestriction("deleted = false")
 public class Coffee {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -13,6 +21,13 @@ public class Coffee {
     private String name;
     private int version;
 
+    /**
+     * Set when the coffee has been soft deleted; the row is hidden from every query until it is purged. The column
+     * default lets <code>ddl-auto=update</code> add the column to a coffee table that already has rows.
+     */
+    @ColumnDefault("false")
+    private boolean deleted;
+
     protected Coffee() {
     }
 
@@ -48,4 +63,13 @@ public class Coffee {
     public void setVersion(int version) {
         this.version = version;
     }
+
+    @JsonIgnore
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
 }
@@ -5,8 +5,56 @@ import java.util.List;
 import com.pluralsight.coffeeservice.model.Coffee;
 
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CoffeeRepository extends JpaRepository<Coffee, Long> {
     List<Coffee> findByName(String name);
+
+    /**
+     * Returns one row per version: the version and the number of coffees at that version.
+     */
+    @Query("select c.version, count(c) from Coffee c group by c.version")
+    List<Object[]> countByVersion();
+
+    List<Coffee> findByOrderByVersionDescIdAsc(Limit limit);
+
+    /**
+     * Deletes the coffee with a single statement, unlike deleteById, which loads the coffee first.
+     * Returns the number of rows deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Coffee c where c.id = :id")
+    int deleteCoffeeById(Long id);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Coffee c where c.id = :id and c.version = :version")
+    int deleteCoffeeByIdAndVersion(Long id, int version);
+
+    /**
+     * Marks the coffee as deleted without removing its row. Returns the number of rows marked.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update coffee set deleted = true where id = :id and deleted = false", nativeQuery = true)
+    int tombstoneById(Long id);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update coffee set deleted = true where id = :id and version = :version and deleted = false",
+            nativeQuery = true)
+    int tombstoneByIdAndVersion(Long id, int version);
+
+    @Query(value = "select id from coffee where deleted = true limit :limit", nativeQuery = true)
+    List<Long> findTombstonedIds(int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from coffee where deleted = true and id in (:ids)", nativeQuery = true)
+    int purgeTombstones(List<Long> ids);
 }
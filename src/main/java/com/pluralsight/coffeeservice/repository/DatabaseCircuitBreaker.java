@@ -0,0 +1,225 @@
+package com.pluralsight.coffeeservice.repository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import com.pluralsight.coffeeservice.CircuitBreakerProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * A circuit breaker for coffee database calls. While closed, it records the outcome of the last
+ * <code>slidingWindowSize</code> calls and opens when too many of them failed or were slow. While open, calls are
+ * rejected with a {@link DatabaseUnavailableException} without touching the database, so that request threads do not
+ * pile up behind a stalled database. After <code>openDuration</code> it lets a few trial calls through (half-open)
+ * and closes again if they all succeed.
+ * <p>
+ * Only availability failures, see {@link #isAvailabilityFailure(Throwable)}, count as failures. Errors that the
+ * database answered with, such as constraint violations or optimistic locking conflicts, are caused by the request
+ * and count as successful calls.
+ * <p>
+ * The state is exported as the <code>coffee.db.circuit.state</code> gauge (0 closed, 1 half-open, 2 open), call
+ * outcomes as the <code>coffee.db.calls</code> counter and state changes as the
+ * <code>coffee.db.circuit.transitions</code> counter.
+ */
+public class DatabaseCircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILURE, SLOW
+    }
+
+    private final CircuitBreakerProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The outcomes of the most recent calls while closed, used as a ring buffer; guarded by <code>this</code>
+     */
+    private final Outcome[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public DatabaseCircuitBreaker(CircuitBreakerProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.window = new Outcome[properties.getSlidingWindowSize()];
+        if (meterRegistry != null) {
+            Gauge.builder("coffee.db.circuit.state", this, breaker -> breaker.getState().ordinal())
+                    .description("State of the coffee database circuit breaker: 0 closed, 1 half-open, 2 open")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Calls the database through the breaker.
+     *
+     * @throws DatabaseUnavailableException if the breaker is open
+     */
+    public <T> T call(Supplier<T> databaseCall) {
+        if (!properties.isEnabled()) {
+            return databaseCall.get();
+        }
+        acquirePermission();
+
+        long start = clock.millis();
+        try {
+            T result = databaseCall.get();
+            long elapsed = clock.millis() - start;
+            record(elapsed >= properties.getSlowCallDuration().toMillis() ? Outcome.SLOW : Outcome.SUCCESS);
+            return result;
+        } catch (RuntimeException e) {
+            // Anything but an availability failure means the database answered
+            record(isAvailabilityFailure(e) ? Outcome.FAILURE : Outcome.SUCCESS);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the exception means that the database could not be reached or did not answer in time: a rejection by
+     * an open breaker, a resource failure such as a refused connection, a failure to begin a transaction, a query
+     * timeout or another transient error. Lock conflicts are transient too, but they are caused by concurrent
+     * requests, not by the database being unavailable, so they are excluded.
+     */
+    public static boolean isAvailabilityFailure(Throwable e) {
+        if (e instanceof ConcurrencyFailureException) {
+            return false;
+        }
+        return e instanceof DatabaseUnavailableException
+                || e instanceof TransientDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && openDurationElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * How long until the breaker lets trial calls through, or zero if it is not open
+     */
+    public synchronized Duration getRetryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = openedAtMillis + properties.getOpenDuration().toMillis() - clock.millis();
+        return Duration.ofMillis(Math.max(remaining, 0));
+    }
+
+    private synchronized void acquirePermission() {
+        if (state == State.OPEN && openDurationElapsed()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && halfOpenPermits == 0)) {
+            countCall("rejected");
+            throw new DatabaseUnavailableException("The coffee database circuit breaker is open", getRetryAfter());
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+    }
+
+    private synchronized void record(Outcome outcome) {
+        countCall(outcome.name().toLowerCase());
+        switch (state) {
+            case CLOSED -> {
+                addToWindow(outcome);
+                if (windowCount >= properties.getMinimumCalls()
+                        && ((double) failedCalls / windowCount >= properties.getFailureRateThreshold()
+                        || (double) slowCalls / windowCount >= properties.getSlowCallRateThreshold())) {
+                    transitionTo(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> {
+                if (outcome != Outcome.SUCCESS) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses >= properties.getHalfOpenCalls()) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case OPEN -> {
+                // A call that started before the breaker opened; its outcome no longer matters
+            }
+        }
+    }
+
+    private void addToWindow(Outcome outcome) {
+        Outcome evicted = window[windowIndex];
+        if (evicted == Outcome.FAILURE) {
+            failedCalls--;
+        } else if (evicted == Outcome.SLOW) {
+            slowCalls--;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+        if (outcome == Outcome.FAILURE) {
+            failedCalls++;
+        } else if (outcome == Outcome.SLOW) {
+            slowCalls++;
+        }
+    }
+
+    private void transitionTo(State newState) {
+        LOGGER.warn("Coffee database circuit breaker changed from {} to {}", state, newState);
+        if (meterRegistry != null) {
+            Counter.builder("coffee.db.circuit.transitions")
+                    .tag("from", state.name().toLowerCase())
+                    .tag("to", newState.name().toLowerCase())
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAtMillis = clock.millis();
+            case HALF_OPEN -> {
+                halfOpenPermits = properties.getHalfOpenCalls();
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                Arrays.fill(window, null);
+                windowIndex = 0;
+                windowCount = 0;
+                failedCalls = 0;
+                slowCalls = 0;
+            }
+        }
+    }
+
+    private boolean openDurationElapsed() {
+        return clock.millis() - openedAtMillis >= properties.getOpenDuration().toMillis();
+    }
+
+    private void countCall(String outcome) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("coffee.db.calls", "outcome", outcome).increment();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.pluralsight.coffeeservice.repository;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of calling the database while the circuit breaker is open, or when a database call fails and there
+ * is no last known good value to fall back on.
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public DatabaseUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public DatabaseUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long clients should wait before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,394 @@
+package com.pluralsight.coffeeservice.repository.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Stores coffees across several databases. Each coffee lives on exactly one shard, chosen by its ID:
+ * <code>shard = floorMod(id, shardCount)</code>. New IDs are generated from a sequence that is local to the shard
+ * the coffee is written to and encoded as <code>localId * shardCount + shardIndex</code>, so IDs are globally unique
+ * without any coordination between shards and always route back to the shard that generated them.
+ * <p>
+ * Because the shard index is part of the ID, the number of shards cannot change without migrating data.
+ * <p>
+ * Single-coffee operations touch one shard. <code>findAll</code> and <code>findByName</code> query every shard in
+ * parallel and merge the results in ID order. <code>findAllById</code> sends at most <code>batchChunkSize</code> IDs
+ * to a shard in one IN query.
+ */
+public class ShardedCoffeeRepository implements AutoCloseable {
+    private static final RowMapper<Coffee> COFFEE_ROW_MAPPER = (rs, rowNum) -> {
+        Coffee coffee = new Coffee(rs.getString("name"), rs.getInt("version"));
+        coffee.setId(rs.getLong("id"));
+        return coffee;
+    };
+
+    private final List<Shard> shards;
+    private final int batchChunkSize;
+    private final ExecutorService executor;
+    private final AtomicInteger nextInsertShard = new AtomicInteger();
+
+    public ShardedCoffeeRepository(List<DataSource> dataSources, int idBlockSize, int batchChunkSize) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (batchChunkSize < 1) {
+            throw new IllegalArgumentException("The batch chunk size must be at least 1");
+        }
+        this.batchChunkSize = batchChunkSize;
+        this.shards = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            shards.add(new Shard(i, dataSources.size(), dataSources.get(i), idBlockSize));
+        }
+        this.executor = Executors.newFixedThreadPool(dataSources.size(), Thread.ofPlatform()
+                .name("coffee-shard-", 0)
+                .daemon(true)
+                .factory());
+    }
+
+    /**
+     * Creates the coffee table and the shard-local ID sequence on every shard if they do not exist yet.
+     */
+    public void initializeSchema() {
+        shards.forEach(Shard::initializeSchema);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the index of the shard that owns the coffee with the specified ID.
+     */
+    public int shardFor(long id) {
+        return Math.floorMod(id, shards.size());
+    }
+
+    public Optional<Coffee> findById(Long id) {
+        return shardOf(id).jdbcTemplate
+                .query("SELECT id, name, version FROM coffee WHERE id = ?", COFFEE_ROW_MAPPER, id)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Finds the coffees with the specified IDs. Each shard that owns at least one of the IDs is queried in parallel,
+     * with one IN query per chunk of at most <code>batchChunkSize</code> of its IDs.
+     */
+    public List<Coffee> findAllById(Collection<Long> ids) {
+        Map<Shard, List<Long>> idsByShard = ids.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(this::shardOf));
+        List<CompletableFuture<List<Coffee>>> futures = idsByShard.entrySet().stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> entry.getKey().findAllById(entry.getValue(), batchChunkSize), executor))
+                .toList();
+        return futures.stream()
+                .flatMap(future -> future.join().stream())
+                .toList();
+    }
+
+    public List<Coffee> findAll() {
+        return scatterGather(shard -> shard.jdbcTemplate
+                .query("SELECT id, name, version FROM coffee ORDER BY id", COFFEE_ROW_MAPPER));
+    }
+
+    /**
+     * Returns a page of coffees ordered by ID. The sort of the specified Pageable is ignored.
+     */
+    public Page<Coffee> findAll(Pageable pageable) {
+        return findPage(pageable, "", new Object[0]);
+    }
+
+    public List<Coffee> findByName(String name) {
+        return scatterGather(shard -> shard.jdbcTemplate
+                .query("SELECT id, name, version FROM coffee WHERE name = ? ORDER BY id", COFFEE_ROW_MAPPER, name));
+    }
+
+    /**
+     * Returns a page of the coffees with the specified name, ordered by ID. The sort of the specified Pageable is
+     * ignored.
+     */
+    public Page<Coffee> findByName(String name, Pageable pageable) {
+        return findPage(pageable, " WHERE name = ?", new Object[]{name});
+    }
+
+    /**
+     * Inserts a coffee without an ID on the next shard in round-robin order, or updates the coffee on the shard that
+     * owns its ID. A coffee with an ID is never inserted, so a coffee deleted after it was read is not brought back.
+     *
+     * @throws OptimisticLockingFailureException if the coffee has an ID but no longer exists
+     */
+    public Coffee save(Coffee coffee) {
+        if (coffee.getId() == null) {
+            Shard shard = shards.get(Math.floorMod(nextInsertShard.getAndIncrement(), shards.size()));
+            coffee.setId(shard.nextId());
+            shard.insert(coffee);
+            return coffee;
+        }
+
+        shardOf(coffee.getId()).update(coffee);
+        return coffee;
+    }
+
+    /**
+     * Saves the coffees like {@link #save(Coffee)}, in one transaction per shard that owns at least one of them. The
+     * shard transactions are nested, so every write on every shard has succeeded before the first of them commits,
+     * and a failed write rolls all of them back. Only a failure while committing can leave some shards written and
+     * others not.
+     */
+    public List<Coffee> saveAll(List<Coffee> coffees) {
+        // Reserve the IDs of new coffees first, outside the transactions, as the ID sequence commits on its own
+        Set<Coffee> newCoffees = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Coffee coffee : coffees) {
+            if (coffee.getId() == null) {
+                coffee.setId(shards.get(Math.floorMod(nextInsertShard.getAndIncrement(), shards.size())).nextId());
+                newCoffees.add(coffee);
+            }
+        }
+        Map<Shard, List<Coffee>> coffeesByShard = coffees.stream()
+                .collect(Collectors.groupingBy(coffee -> shardOf(coffee.getId()), LinkedHashMap::new,
+                        Collectors.toList()));
+        saveInTransactions(new ArrayList<>(coffeesByShard.keySet()), 0, coffeesByShard, newCoffees);
+        return coffees;
+    }
+
+    /**
+     * Deletes the coffee with the specified ID and returns the number of rows that were removed.
+     */
+    public int deleteById(Long id) {
+        return shardOf(id).jdbcTemplate.update("DELETE FROM coffee WHERE id = ?", id);
+    }
+
+    /**
+     * Deletes the coffee with the specified ID only if it has the specified version, and returns the number of rows
+     * that were removed.
+     */
+    public int deleteByIdAndVersion(Long id, int version) {
+        return shardOf(id).jdbcTemplate.update("DELETE FROM coffee WHERE id = ? AND version = ?", id, version);
+    }
+
+    public long count() {
+        List<CompletableFuture<Long>> counts = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() ->
+                        shard.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coffee", Long.class), executor))
+                .toList();
+        return counts.stream().mapToLong(CompletableFuture::join).sum();
+    }
+
+    /**
+     * Returns the number of coffees at each version, summed over all shards.
+     */
+    public Map<Integer, Long> countByVersion() {
+        List<CompletableFuture<List<Map<String, Object>>>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> shard.jdbcTemplate
+                        .queryForList("SELECT version, COUNT(*) AS coffees FROM coffee GROUP BY version"), executor))
+                .toList();
+        Map<Integer, Long> counts = new HashMap<>();
+        futures.forEach(future -> future.join().forEach(row -> counts.merge(
+                ((Number) row.get("version")).intValue(), ((Number) row.get("coffees")).longValue(), Long::sum)));
+        return counts;
+    }
+
+    /**
+     * Returns the coffees with the highest versions, highest first. Each shard returns its own highest, which is
+     * enough to find the highest overall once they are merged.
+     */
+    public List<Coffee> findMostUpdated(int limit) {
+        List<CompletableFuture<List<Coffee>>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> shard.jdbcTemplate.query(
+                        "SELECT id, name, version FROM coffee ORDER BY version DESC, id LIMIT ?", COFFEE_ROW_MAPPER,
+                        limit), executor))
+                .toList();
+        return futures.stream()
+                .flatMap(future -> future.join().stream())
+                .sorted(Comparator.comparingInt(Coffee::getVersion).reversed().thenComparing(Coffee::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (Shard shard : shards) {
+            if (shard.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Shard shardOf(Long id) {
+        return shards.get(shardFor(id));
+    }
+
+    /**
+     * Opens the transaction of the shard at <code>index</code> and, inside it, those of the shards after it; the
+     * innermost call writes the coffees of all shards.
+     */
+    private void saveInTransactions(List<Shard> shardsToWrite, int index, Map<Shard, List<Coffee>> coffeesByShard,
+            Set<Coffee> newCoffees) {
+        if (index == shardsToWrite.size()) {
+            coffeesByShard.forEach((shard, shardCoffees) -> shardCoffees.forEach(coffee -> {
+                if (newCoffees.contains(coffee)) {
+                    shard.insert(coffee);
+                } else {
+                    shard.update(coffee);
+                }
+            }));
+            return;
+        }
+        shardsToWrite.get(index).transactionTemplate.executeWithoutResult(status ->
+                saveInTransactions(shardsToWrite, index + 1, coffeesByShard, newCoffees));
+    }
+
+    /**
+     * Runs the query against every shard in parallel and merges the results in ID order.
+     */
+    private List<Coffee> scatterGather(Function<Shard, List<Coffee>> query) {
+        List<CompletableFuture<List<Coffee>>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+        return futures.stream()
+                .flatMap(future -> future.join().stream())
+                .sorted(Comparator.comparing(Coffee::getId))
+                .toList();
+    }
+
+    /**
+     * Each shard returns its first <code>offset + pageSize</code> rows in ID order, which is enough to find the
+     * requested page once the rows of all shards are merged.
+     */
+    private Page<Coffee> findPage(Pageable pageable, String where, Object[] args) {
+        List<CompletableFuture<Long>> counts = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() ->
+                        shard.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coffee" + where, Long.class, args), executor))
+                .toList();
+
+        List<Coffee> content;
+        if (pageable.isPaged()) {
+            Object[] pagedArgs = new Object[args.length + 1];
+            System.arraycopy(args, 0, pagedArgs, 0, args.length);
+            pagedArgs[args.length] = pageable.getOffset() + pageable.getPageSize();
+            content = scatterGather(shard -> shard.jdbcTemplate.query(
+                            "SELECT id, name, version FROM coffee" + where + " ORDER BY id LIMIT ?", COFFEE_ROW_MAPPER, pagedArgs))
+                    .stream()
+                    .skip(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .toList();
+        } else {
+            content = scatterGather(shard -> shard.jdbcTemplate.query(
+                    "SELECT id, name, version FROM coffee" + where + " ORDER BY id", COFFEE_ROW_MAPPER, args));
+        }
+
+        long total = counts.stream().mapToLong(CompletableFuture::join).sum();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final int shardCount;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final int idBlockSize;
+
+        /**
+         * The next local ID to hand out and the end (exclusive) of the block reserved from the shard's sequence
+         */
+        private long nextLocalId;
+        private long localIdLimit;
+
+        private Shard(int index, int shardCount, DataSource dataSource, int idBlockSize) {
+            this.index = index;
+            this.shardCount = shardCount;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.idBlockSize = idBlockSize;
+        }
+
+        private void initializeSchema() {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS coffee ("
+                    + "id BIGINT NOT NULL PRIMARY KEY, "
+                    + "name VARCHAR(255), "
+                    + "version INTEGER NOT NULL)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS coffee_id_sequence (next_val BIGINT NOT NULL)");
+            transactionTemplate.executeWithoutResult(status -> {
+                Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coffee_id_sequence", Long.class);
+                if (rows == null || rows == 0) {
+                    jdbcTemplate.update("INSERT INTO coffee_id_sequence (next_val) VALUES (1)");
+                }
+            });
+        }
+
+        /**
+         * Returns a new global ID owned by this shard. Local IDs are reserved from the shard's sequence table in
+         * blocks so that only one in every <code>idBlockSize</code> inserts has to update the sequence.
+         */
+        private synchronized long nextId() {
+            if (nextLocalId >= localIdLimit) {
+                nextLocalId = transactionTemplate.execute(status -> {
+                    Long next = jdbcTemplate.queryForObject("SELECT next_val FROM coffee_id_sequence FOR UPDATE", Long.class);
+                    jdbcTemplate.update("UPDATE coffee_id_sequence SET next_val = ?", next + idBlockSize);
+                    return next;
+                });
+                localIdLimit = nextLocalId + idBlockSize;
+            }
+            return nextLocalId++ * shardCount + index;
+        }
+
+        private void insert(Coffee coffee) {
+            jdbcTemplate.update("INSERT INTO coffee (id, name, version) VALUES (?, ?, ?)",
+                    coffee.getId(), coffee.getName(), coffee.getVersion());
+        }
+
+        /**
+         * Writes every column besides the ID, as the shards do not track which properties of a coffee changed
+         */
+        private void update(Coffee coffee) {
+            int updated = jdbcTemplate.update("UPDATE coffee SET name = ?, version = ? WHERE id = ?",
+                    coffee.getName(), coffee.getVersion(), coffee.getId());
+            if (updated == 0) {
+                throw new OptimisticLockingFailureException("Coffee " + coffee.getId() + " no longer exists");
+            }
+        }
+
+        private List<Coffee> findAllById(List<Long> ids, int chunkSize) {
+            List<Coffee> coffees = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(", "));
+                coffees.addAll(jdbcTemplate.query(
+                        "SELECT id, name, version FROM coffee WHERE id IN (" + placeholders + ")",
+                        COFFEE_ROW_MAPPER, chunk.toArray()));
+            }
+            return coffees;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.pluralsight.coffeeservice.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+/**
+ * An in-memory autocomplete index over coffee names.
+ * <p>
+ * Names are normalized (lower case, accents removed, whitespace collapsed) and stored in a sorted map under the
+ * whole name and under the start of every later word, so that "lat" finds both "Latte" and "Caffe Latte". A prefix
+ * query is a range scan of that map. When a query of at least three characters has too few prefix matches, the
+ * index also looks up prefixes one edit away from it (one character deleted, inserted, replaced or two adjacent
+ * characters swapped). Only edits up to the end of the longest indexed prefix of the query can lead to a match, and
+ * only characters that follow the unchanged part in some key are tried, so correcting a typo costs tens of range
+ * lookups rather than one per character of the alphabet and position.
+ * <p>
+ * Matches are ranked: exact prefix before corrected, whole-name before later-word matches, exact names first, then
+ * shorter names first.
+ * <p>
+ * Reads never block: the map is a {@link ConcurrentSkipListMap}. Updates are serialized, and a rename adds the keys
+ * of the new name before it removes those of the old one, so a reader that runs during a rename finds the coffee
+ * under its old name, its new name or both, never under neither; a coffee found under both is suggested once. The
+ * index only sees writes made through this instance of the service.
+ */
+@Component
+public class CoffeeNameIndex implements InfoContributor {
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Separates the indexed text from the coffee ID in a key; it sorts before every character of a name
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final int MAX_WORD_KEYS = 8;
+    private static final int MIN_CORRECTED_QUERY_LENGTH = 3;
+
+    /**
+     * Exact prefix matches to rank per requested suggestion, and matches per typo variant
+     */
+    private static final int CANDIDATES_PER_SUGGESTION = 8;
+    private static final int CANDIDATES_PER_VARIANT = 2;
+
+    private final ConcurrentSkipListMap<String, Entry> keys = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(long id, String name, String normalizedName, List<String> keys) {
+    }
+
+    private record Candidate(Entry entry, boolean corrected, boolean wholeName) {
+    }
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparing(Candidate::corrected)
+            .thenComparing(candidate -> !candidate.wholeName())
+            .thenComparingInt(candidate -> candidate.entry().normalizedName().length())
+            .thenComparing(candidate -> candidate.entry().normalizedName());
+
+    /**
+     * Adds the coffee to the index, replacing its previous name if it was already indexed
+     */
+    public synchronized void put(Coffee coffee) {
+        if (coffee.getId() == null) {
+            return;
+        }
+        if (coffee.getName() == null) {
+            remove(coffee.getId());
+            return;
+        }
+
+        String normalizedName = normalize(coffee.getName());
+        List<String> entryKeys = new ArrayList<>();
+        entryKeys.add(normalizedName + KEY_SEPARATOR + coffee.getId());
+        for (int i = 1; i < normalizedName.length() && entryKeys.size() <= MAX_WORD_KEYS; i++) {
+            if (normalizedName.charAt(i - 1) == ' ') {
+                entryKeys.add(normalizedName.substring(i) + KEY_SEPARATOR + coffee.getId());
+            }
+        }
+
+        Entry entry = new Entry(coffee.getId(), coffee.getName(), normalizedName, List.copyOf(entryKeys));
+        entryKeys.forEach(key -> keys.put(key, entry));
+        Entry previous = entries.put(entry.id(), entry);
+        if (previous != null) {
+            // Keys shared by both names already point to the new entry and are kept
+            previous.keys().stream()
+                    .filter(key -> !entryKeys.contains(key))
+                    .forEach(keys::remove);
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.keys().forEach(keys::remove);
+        }
+    }
+
+    public synchronized void clear() {
+        keys.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns up to <code>limit</code> coffees whose name, or a later word of whose name, starts with the query,
+     * falling back to names that start with the query after correcting one typo.
+     */
+    public List<CoffeeSuggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Candidate> candidates = new HashMap<>();
+        collect(prefix, limit * CANDIDATES_PER_SUGGESTION, false, candidates);
+        if (candidates.size() < limit && prefix.length() >= MIN_CORRECTED_QUERY_LENGTH) {
+            collectCorrected(prefix, candidates);
+        }
+
+        return candidates.values().stream()
+                .sorted(RANKING)
+                .limit(limit)
+                .map(candidate -> new CoffeeSuggestion(candidate.entry().id(), candidate.entry().name(),
+                        candidate.corrected()))
+                .toList();
+    }
+
+    /**
+     * Estimates the heap used by the index: the keys and their skip list nodes, and the per-coffee entries.
+     * Walks every entry, so it is meant for monitoring rather than for every request.
+     */
+    public IndexStats getStats() {
+        long bytes = 0;
+        long keyCount = 0;
+        for (Entry entry : entries.values()) {
+            // Entry record, its key list, the hash map node and boxed ID, and the name strings
+            bytes += 32 + 16 + 4L * entry.keys().size() + 32 + 16
+                    + stringBytes(entry.name()) + stringBytes(entry.normalizedName());
+            for (String key : entry.keys()) {
+                // The key string, its skip list node and on average a third of an index node
+                bytes += stringBytes(key) + 24 + 8;
+                keyCount++;
+            }
+        }
+        int entryCount = entries.size();
+        return new IndexStats(entryCount, keyCount, bytes, entryCount == 0 ? 0 : bytes / entryCount);
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        IndexStats stats = getStats();
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("entries", stats.entries());
+        details.put("keys", stats.keys());
+        details.put("estimatedBytes", stats.estimatedBytes());
+        details.put("estimatedBytesPerEntry", stats.estimatedBytesPerEntry());
+        builder.withDetail("coffeeNameIndex", details);
+    }
+
+    public record IndexStats(int entries, long keys, long estimatedBytes, long estimatedBytesPerEntry) {
+    }
+
+    static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        String withoutAccents = ACCENTS.matcher(decomposed).replaceAll("");
+        return WHITESPACE.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ")
+                .replace(KEY_SEPARATOR, ' ')
+                .trim();
+    }
+
+    private void collect(String prefix, int maxCandidates, boolean corrected, Map<Long, Candidate> candidates) {
+        int found = 0;
+        for (Entry entry : keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            Candidate candidate = new Candidate(entry, corrected, entry.normalizedName().startsWith(prefix));
+            candidates.merge(entry.id(), candidate, (a, b) -> RANKING.compare(a, b) <= 0 ? a : b);
+            if (++found >= maxCandidates) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collects the coffees matching a prefix one edit away from the specified prefix
+     */
+    private void collectCorrected(String prefix, Map<Long, Candidate> candidates) {
+        Set<String> tried = new HashSet<>();
+        tried.add(prefix);
+        int lastEdit = Math.min(longestIndexedPrefix(prefix), prefix.length());
+        for (int i = 0; i <= lastEdit; i++) {
+            String head = prefix.substring(0, i);
+            if (i < prefix.length()) {
+                // Deletion
+                tryVariant(head + prefix.substring(i + 1), tried, candidates);
+
+                // Transposition
+                if (i + 1 < prefix.length()) {
+                    tryVariant(head + prefix.charAt(i + 1) + prefix.charAt(i) + prefix.substring(i + 2), tried,
+                            candidates);
+                }
+            }
+
+            // Insertion and replacement, with characters that follow the head in some key
+            for (char next : nextCharacters(head)) {
+                tryVariant(head + next + prefix.substring(i), tried, candidates);
+                if (i < prefix.length()) {
+                    tryVariant(head + next + prefix.substring(i + 1), tried, candidates);
+                }
+            }
+        }
+    }
+
+    private void tryVariant(String variant, Set<String> tried, Map<Long, Candidate> candidates) {
+        if (!variant.isEmpty() && tried.add(variant)) {
+            collect(variant, CANDIDATES_PER_VARIANT, true, candidates);
+        }
+    }
+
+    /**
+     * Returns the length of the longest prefix of the specified prefix that starts some key
+     */
+    private int longestIndexedPrefix(String prefix) {
+        int low = 0;
+        int high = prefix.length();
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            String candidate = prefix.substring(0, middle);
+            String key = keys.ceilingKey(candidate);
+            if (key != null && key.startsWith(candidate)) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the distinct characters that follow the head in some key, skipping from one to the next with a
+     * single lookup each
+     */
+    private List<Character> nextCharacters(String head) {
+        List<Character> next = new ArrayList<>();
+        String key = keys.ceilingKey(head);
+        while (key != null && key.startsWith(head) && key.length() > head.length()) {
+            char character = key.charAt(head.length());
+            if (character != KEY_SEPARATOR) {
+                next.add(character);
+            }
+            if (character == Character.MAX_VALUE) {
+                break;
+            }
+            key = keys.ceilingKey(head + (char) (character + 1));
+        }
+        return next;
+    }
+
+    private static long stringBytes(String value) {
+        // Object header and fields, plus the backing array rounded up to 8 bytes
+        return 24 + ((16 + value.length() + 7) & ~7);
+    }
+}
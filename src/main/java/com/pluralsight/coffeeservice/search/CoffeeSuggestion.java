@@ -0,0 +1,32 @@
+package com.pluralsight.coffeeservice.search;
+
+/**
+ * A coffee name suggested for an autocomplete query.
+ */
+public class CoffeeSuggestion {
+    private final Long id;
+    private final String name;
+
+    /**
+     * Whether the name only matches the query with one typo corrected
+     */
+    private final boolean corrected;
+
+    public CoffeeSuggestion(Long id, String name, boolean corrected) {
+        this.id = id;
+        this.name = name;
+        this.corrected = corrected;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isCorrected() {
+        return corrected;
+    }
+}
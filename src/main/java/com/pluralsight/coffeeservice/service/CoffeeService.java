@@ -1,37 +1,413 @@
 package com.pluralsight.coffeeservice.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.pluralsight.coffeeservice.model.Coffee;
 import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+import com.pluralsight.coffeeservice.repository.DatabaseCircuitBreaker;
+import com.pluralsight.coffeeservice.repository.DatabaseUnavailableException;
+import com.pluralsight.coffeeservice.repository.shard.ShardedCoffeeRepository;
+import com.pluralsight.coffeeservice.search.CoffeeNameIndex;
+import com.pluralsight.coffeeservice.search.CoffeeSuggestion;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
+import com.pluralsight.coffeeservice.stats.CoffeeStats;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class CoffeeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoffeeService.class);
+
+    /**
+     * The key under which the full coffee list is revalidated
+     */
+    private static final Long ALL_COFFEES = -1L;
+
     @Autowired
     private CoffeeRepository coffeeRepository;
 
+    /**
+     * Present only when <code>coffee.sharding.enabled=true</code>, in which case it replaces the JPA repository for
+     * all coffee reads and writes
+     */
+    @Autowired(required = false)
+    private ShardedCoffeeRepository shardedCoffeeRepository;
+
+    @Autowired
+    private DatabaseCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private LastKnownGoodCache lastKnownGoodCache;
+
+    @Autowired
+    private CoffeeNameIndex coffeeNameIndex;
+
+    @Autowired
+    private CoffeeStatistics coffeeStatistics;
+
+    /**
+     * The maximum number of IDs sent to the database in a single IN query
+     */
+    @Value("${coffee.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    /**
+     * When set, deletes only mark coffees as deleted and CoffeeTombstonePurger removes the rows in the background
+     */
+    @Value("${coffee.delete.soft-delete:false}")
+    private boolean softDelete;
+
+    /**
+     * The number of coffees read per query while building the name index
+     */
+    @Value("${coffee.suggest.build-page-size:1000}")
+    private int nameIndexPageSize = 1000;
+
+    /**
+     * Re-reads stale values in the background, one at a time, so that revalidation never competes with requests for
+     * more than one connection
+     */
+    private final ExecutorService revalidationExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+            .name("coffee-revalidation")
+            .daemon(true)
+            .factory());
+    private final Set<Long> revalidating = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns all coffees. While the database is unavailable, returns the last known list and marks the response as
+     * stale.
+     */
     public List<Coffee> findAll() {
-        return coffeeRepository.findAll();
+        try {
+            List<Coffee> coffees = circuitBreaker.call(this::loadAll);
+            lastKnownGoodCache.putAllCoffees(coffees);
+            return coffees;
+        } catch (DatabaseUnavailableException | DataAccessException | TransactionException e) {
+            if (!DatabaseCircuitBreaker.isAvailabilityFailure(e)) {
+                throw e;
+            }
+            Optional<List<Coffee>> stale = lastKnownGoodCache.getAll();
+            if (stale.isEmpty()) {
+                throw unavailable(e);
+            }
+            StaleReads.markStale();
+            revalidate(ALL_COFFEES);
+            return stale.get();
+        }
     }
 
+    /**
+     * Finds the coffee with the specified ID. While the database is unavailable, returns the last known value of the
+     * coffee and marks the response as stale.
+     */
     public Optional<Coffee> findById(Long id) {
-        return coffeeRepository.findById(id);
+        try {
+            Optional<Coffee> coffee = circuitBreaker.call(() -> loadById(id));
+            coffee.ifPresentOrElse(lastKnownGoodCache::put, () -> lastKnownGoodCache.remove(id));
+            return coffee;
+        } catch (DatabaseUnavailableException | DataAccessException | TransactionException e) {
+            if (!DatabaseCircuitBreaker.isAvailabilityFailure(e)) {
+                throw e;
+            }
+            Optional<Coffee> stale = lastKnownGoodCache.get(id);
+            if (stale.isEmpty()) {
+                throw unavailable(e);
+            }
+            StaleReads.markStale();
+            revalidate(id);
+            return stale;
+        }
+    }
+
+    /**
+     * Returns the first <code>count</code> coffees in ID order, and remembers them as last known good values. There is
+     * no stale fallback: while the database is unavailable this fails.
+     */
+    public List<Coffee> findFirst(int count) {
+        List<Coffee> coffees = circuitBreaker.call(() -> loadPage(PageRequest.of(0, count, Sort.by("id"))))
+                .getContent();
+        lastKnownGoodCache.putAll(coffees);
+        return coffees;
+    }
+
+    /**
+     * Finds all coffees with the specified IDs, splitting large ID lists into chunks of at most
+     * <code>coffee.batch.chunk-size</code> IDs so that each chunk is resolved with a single IN query.
+     * The returned list is in no particular order and does not contain entries for missing IDs. While the database
+     * is unavailable, returns the last known values of the coffees and marks the response as stale if every requested
+     * coffee is cached; otherwise it fails, because an uncached coffee cannot be told apart from a missing one.
+     */
+    public List<Coffee> findAllById(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        try {
+            List<Coffee> coffees = circuitBreaker.call(() -> loadAllById(distinctIds));
+            lastKnownGoodCache.putAll(coffees);
+            return coffees;
+        } catch (DatabaseUnavailableException | DataAccessException | TransactionException e) {
+            if (!DatabaseCircuitBreaker.isAvailabilityFailure(e)) {
+                throw e;
+            }
+            List<Coffee> stale = distinctIds.stream()
+                    .flatMap(id -> lastKnownGoodCache.get(id).stream())
+                    .toList();
+            if (stale.size() < distinctIds.size()) {
+                throw unavailable(e);
+            }
+            StaleReads.markStale();
+            stale.forEach(coffee -> revalidate(coffee.getId()));
+            return stale;
+        }
+    }
+
+    /**
+     * Suggests coffees whose name starts with the query, tolerating one typo. Served from memory, so it keeps
+     * working while the database is unavailable.
+     */
+    public List<CoffeeSuggestion> suggest(String query, int limit) {
+        return coffeeNameIndex.suggest(query, limit);
+    }
+
+    /**
+     * Builds the name index from the database, one page at a time, before the application starts taking traffic.
+     * Coffees written while the index is being built are indexed by the write itself.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void buildNameIndex() {
+        long start = System.nanoTime();
+        try {
+            Page<Coffee> page;
+            Pageable pageable = PageRequest.of(0, nameIndexPageSize, Sort.by("id"));
+            do {
+                Pageable current = pageable;
+                page = circuitBreaker.call(() -> loadPage(current));
+                page.forEach(coffeeNameIndex::put);
+                pageable = page.nextPageable();
+            } while (page.hasNext());
+            LOGGER.info("Indexed {} coffee names in {} ms", coffeeNameIndex.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (DatabaseUnavailableException | DataAccessException | TransactionException e) {
+            LOGGER.warn("Could not build the coffee name index, suggestions are limited to coffees written since "
+                    + "startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the catalog statistics, which are maintained in memory and never read from the database.
+     */
+    public CoffeeStats getStats() {
+        return coffeeStatistics.getStats();
     }
 
     public Coffee create(Coffee coffee) {
         coffee.setVersion(1);
-        return coffeeRepository.save(coffee);
+        Coffee created = write(coffee);
+        coffeeStatistics.recordCreated(created);
+        return created;
     }
 
+    /**
+     * Saves the coffee.
+     *
+     * @throws DatabaseUnavailableException if the database circuit breaker is open
+     */
     public Coffee save(Coffee coffee) {
+        // The caller has usually just read the coffee, so its previous version is known without another query
+        Integer previousVersion = coffee.getId() == null ? null : lastKnownGoodCache.get(coffee.getId())
+                .map(Coffee::getVersion)
+                .orElse(null);
+        Coffee saved = write(coffee);
+        coffeeStatistics.recordUpdated(previousVersion, saved);
+        return saved;
+    }
+
+    /**
+     * Saves the coffees in a single transaction. Coffee uses dynamic updates, which Hibernate does not send as JDBC
+     * batches, so each changed coffee is still one UPDATE statement, but the batch costs a single commit. With the
+     * sharded store, the coffees are saved in one transaction per shard, see
+     * {@link ShardedCoffeeRepository#saveAll(List)}.
+     *
+     * @throws DatabaseUnavailableException if the database circuit breaker is open
+     */
+    public List<Coffee> saveAll(List<Coffee> coffees) {
+        if (coffees.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> previousVersions = coffees.stream()
+                .map(coffee -> coffee.getId() == null ? null : lastKnownGoodCache.get(coffee.getId())
+                        .map(Coffee::getVersion)
+                        .orElse(null))
+                .toList();
+        List<Coffee> saved = circuitBreaker.call(() -> persistAll(coffees));
+        for (int i = 0; i < saved.size(); i++) {
+            lastKnownGoodCache.put(saved.get(i));
+            coffeeNameIndex.put(saved.get(i));
+            coffeeStatistics.recordUpdated(previousVersions.get(i), saved.get(i));
+        }
+        return saved;
+    }
+
+    /**
+     * Deletes the coffee with the specified ID in a single statement, only if its version matches when an expected
+     * version is specified, and returns the number of coffees deleted. Returns 0 when the coffee does not exist or
+     * has a different version. With <code>coffee.delete.soft-delete=true</code> the coffee is marked as deleted and
+     * its row is purged later.
+     *
+     * @throws DatabaseUnavailableException if the database circuit breaker is open
+     */
+    public int deleteById(Long id, Integer expectedVersion) {
+        Integer version = expectedVersion != null ? expectedVersion : lastKnownGoodCache.get(id)
+                .map(Coffee::getVersion)
+                .orElse(null);
+        int deleted = circuitBreaker.call(() -> remove(id, expectedVersion));
+        if (deleted > 0) {
+            lastKnownGoodCache.remove(id);
+            coffeeNameIndex.remove(id);
+            coffeeStatistics.recordDeleted(id, version);
+        }
+        return deleted;
+    }
+
+    /**
+     * Fails the start-up if batch lookups could not be split into chunks
+     */
+    @PostConstruct
+    void validateBatchChunkSize() {
+        if (batchChunkSize < 1) {
+            throw new IllegalStateException("coffee.batch.chunk-size must be at least 1: " + batchChunkSize);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        revalidationExecutor.shutdownNow();
+    }
+
+    private List<Coffee> loadAll() {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.findAll();
+        }
+        return coffeeRepository.findAll();
+    }
+
+    private Coffee write(Coffee coffee) {
+        Coffee saved = circuitBreaker.call(() -> persist(coffee));
+        lastKnownGoodCache.put(saved);
+        coffeeNameIndex.put(saved);
+        return saved;
+    }
+
+    private Page<Coffee> loadPage(Pageable pageable) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.findAll(pageable);
+        }
+        return coffeeRepository.findAll(pageable);
+    }
+
+    private Optional<Coffee> loadById(Long id) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.findById(id);
+        }
+        return coffeeRepository.findById(id);
+    }
+
+    private List<Coffee> loadAllById(List<Long> distinctIds) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.findAllById(distinctIds);
+        }
+
+        List<Coffee> coffees = new ArrayList<>(distinctIds.size());
+        for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, distinctIds.size());
+            coffees.addAll(coffeeRepository.findAllById(distinctIds.subList(from, to)));
+        }
+        return coffees;
+    }
+
+    /**
+     * Saves the coffee. JPA writes only the changed columns, as Coffee uses dynamic updates. The sharded store has no
+     * dirty tracking and always writes the name and the version, which is every column of its coffee table besides
+     * the ID; as every effective patch changes both, its UPDATE is the same as the one JPA sends, but a column added
+     * to the shards would be rewritten on every save until the UPDATE is built from the changed properties.
+     */
+    private Coffee persist(Coffee coffee) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.save(coffee);
+        }
         return coffeeRepository.save(coffee);
     }
 
-    public void deleteById(Long id) {
-        coffeeRepository.deleteById(id);
+    private List<Coffee> persistAll(List<Coffee> coffees) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.saveAll(coffees);
+        }
+        return coffeeRepository.saveAll(coffees);
+    }
+
+    private int remove(Long id, Integer expectedVersion) {
+        if (shardedCoffeeRepository != null) {
+            return expectedVersion == null
+                    ? shardedCoffeeRepository.deleteById(id)
+                    : shardedCoffeeRepository.deleteByIdAndVersion(id, expectedVersion);
+        }
+        if (softDelete) {
+            return expectedVersion == null
+                    ? coffeeRepository.tombstoneById(id)
+                    : coffeeRepository.tombstoneByIdAndVersion(id, expectedVersion);
+        }
+        return expectedVersion == null
+                ? coffeeRepository.deleteCoffeeById(id)
+                : coffeeRepository.deleteCoffeeByIdAndVersion(id, expectedVersion);
+    }
+
+    /**
+     * Re-reads a stale value in the background. While the breaker is open the read is rejected immediately; once
+     * the open duration has passed it becomes one of the breaker's trial calls.
+     */
+    private void revalidate(Long id) {
+        if (!revalidating.add(id)) {
+            return;
+        }
+        revalidationExecutor.execute(() -> {
+            try {
+                if (ALL_COFFEES.equals(id)) {
+                    lastKnownGoodCache.putAllCoffees(circuitBreaker.call(this::loadAll));
+                } else {
+                    circuitBreaker.call(() -> loadById(id))
+                            .ifPresentOrElse(lastKnownGoodCache::put, () -> lastKnownGoodCache.remove(id));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not revalidate coffee {}: {}", id, e.getMessage());
+            } finally {
+                revalidating.remove(id);
+            }
+        });
+    }
+
+    private DatabaseUnavailableException unavailable(RuntimeException e) {
+        if (e instanceof DatabaseUnavailableException unavailable) {
+            return unavailable;
+        }
+        return new DatabaseUnavailableException("The coffee database is unavailable", circuitBreaker.getRetryAfter(), e);
     }
 }
@@ -0,0 +1,77 @@
+package com.pluralsight.coffeeservice.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+import com.pluralsight.coffeeservice.repository.DatabaseCircuitBreaker;
+import com.pluralsight.coffeeservice.repository.DatabaseUnavailableException;
+import com.pluralsight.coffeeservice.repository.shard.ShardedCoffeeRepository;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * Replaces the incrementally maintained catalog statistics with values read from the database: once at startup,
+ * before the application takes traffic, and then periodically to correct drift. Each run costs one GROUP BY over
+ * the coffee table and one top-N query.
+ */
+@Component
+public class CoffeeStatisticsReconciler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoffeeStatisticsReconciler.class);
+
+    @Autowired
+    private CoffeeRepository coffeeRepository;
+
+    @Autowired(required = false)
+    private ShardedCoffeeRepository shardedCoffeeRepository;
+
+    @Autowired
+    private DatabaseCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private CoffeeStatistics coffeeStatistics;
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Scheduled(fixedDelayString = "${coffee.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${coffee.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            circuitBreaker.call(() -> {
+                coffeeStatistics.reconcile(countByVersion(), findMostUpdated(coffeeStatistics.getMostUpdatedSize()));
+                return null;
+            });
+        } catch (DatabaseUnavailableException | DataAccessException | TransactionException e) {
+            LOGGER.warn("Could not reconcile the coffee statistics: {}", e.getMessage());
+        }
+    }
+
+    private Map<Integer, Long> countByVersion() {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.countByVersion();
+        }
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : coffeeRepository.countByVersion()) {
+            counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private List<Coffee> findMostUpdated(int limit) {
+        if (shardedCoffeeRepository != null) {
+            return shardedCoffeeRepository.findMostUpdated(limit);
+        }
+        return coffeeRepository.findByOrderByVersionDescIdAsc(Limit.of(limit));
+    }
+}
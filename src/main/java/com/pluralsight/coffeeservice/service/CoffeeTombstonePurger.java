@@ -0,0 +1,49 @@
+package com.pluralsight.coffeeservice.service;
+
+import java.util.List;
+
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes the rows of soft deleted coffees in small batches, each in its own transaction, so that purging a mass
+ * deletion never holds locks on many rows of the coffee table at once.
+ */
+@Component
+@ConditionalOnProperty(prefix = "coffee.delete", name = "soft-delete", havingValue = "true")
+public class CoffeeTombstonePurger {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoffeeTombstonePurger.class);
+
+    @Autowired
+    private CoffeeRepository coffeeRepository;
+
+    @Value("${coffee.delete.purge-batch-size:100}")
+    private int batchSize = 100;
+
+    /**
+     * Purges batches of tombstoned coffees until none are left, and returns the number of rows removed.
+     */
+    @Scheduled(fixedDelayString = "${coffee.delete.purge-interval-ms:30000}")
+    public int purge() {
+        int purged = 0;
+        List<Long> ids;
+        do {
+            ids = coffeeRepository.findTombstonedIds(batchSize);
+            if (!ids.isEmpty()) {
+                purged += coffeeRepository.purgeTombstones(ids);
+            }
+        } while (ids.size() == batchSize);
+
+        if (purged > 0) {
+            LOGGER.info("Purged {} deleted coffees", purged);
+        }
+        return purged;
+    }
+}
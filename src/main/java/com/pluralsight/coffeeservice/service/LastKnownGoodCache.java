@@ -0,0 +1,120 @@
+package com.pluralsight.coffeeservice.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+/**
+ * The last values read from or written to the database, kept so that reads can still be answered, marked as stale,
+ * while the database is unavailable. Holds at most <code>maxEntries</code> coffees, evicting the least recently used,
+ * plus the last full coffee list if it is no larger than that.
+ * <p>
+ * Coffees are copied on the way in and on the way out, because callers modify the coffees they are given.
+ * <p>
+ * Pinned coffees, the hottest ones reported by HotKeySketch, are skipped by eviction for as long as they stay pinned,
+ * so that the most read coffees can still be served while the database is unavailable. This cache is only read when
+ * the database fails, so pinning does not speed up reads while it is available. At most <code>maxEntries</code>
+ * coffees are pinned, so that eviction always finds an unpinned coffee and the cache never grows past its size.
+ */
+public class LastKnownGoodCache {
+    private final int maxEntries;
+
+    /**
+     * Guarded by <code>this</code>
+     */
+    private final LinkedHashMap<Long, Coffee> coffees;
+    private List<Coffee> allCoffees;
+    private Set<Long> pinned = Set.of();
+
+    public LastKnownGoodCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.coffees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Coffee> eldest) {
+                if (size() <= LastKnownGoodCache.this.maxEntries) {
+                    return false;
+                }
+                if (!pinned.contains(eldest.getKey())) {
+                    return true;
+                }
+                // Evict the least recently used unpinned coffee instead
+                for (Iterator<Long> ids = keySet().iterator(); ids.hasNext(); ) {
+                    if (!pinned.contains(ids.next())) {
+                        ids.remove();
+                        return false;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Optional<Coffee> get(Long id) {
+        return Optional.ofNullable(coffees.get(id)).map(LastKnownGoodCache::copyOf);
+    }
+
+    public synchronized Optional<List<Coffee>> getAll() {
+        return Optional.ofNullable(allCoffees).map(list -> list.stream().map(LastKnownGoodCache::copyOf).toList());
+    }
+
+    public synchronized void put(Coffee coffee) {
+        if (coffee.getId() != null) {
+            coffees.put(coffee.getId(), copyOf(coffee));
+        }
+    }
+
+    public synchronized void putAll(List<Coffee> list) {
+        list.forEach(this::put);
+    }
+
+    /**
+     * Replaces the last full coffee list, and refreshes the coffees it contains
+     */
+    public synchronized void putAllCoffees(List<Coffee> list) {
+        allCoffees = list.size() <= maxEntries ? list.stream().map(LastKnownGoodCache::copyOf).toList() : null;
+        putAll(list);
+    }
+
+    public synchronized void remove(Long id) {
+        coffees.remove(id);
+        if (allCoffees != null) {
+            allCoffees = allCoffees.stream().filter(coffee -> !id.equals(coffee.getId())).toList();
+        }
+    }
+
+    /**
+     * Replaces the set of pinned IDs with the first <code>maxEntries</code> of the specified IDs, which should be
+     * ordered hottest first. Pinning does not load coffees into the cache; a pinned coffee is kept once it has been
+     * read or written.
+     */
+    public synchronized void pin(Collection<Long> ids) {
+        pinned = ids.stream().limit(maxEntries).collect(Collectors.toUnmodifiableSet());
+    }
+
+    public synchronized Set<Long> getPinned() {
+        return pinned;
+    }
+
+    public synchronized void clear() {
+        coffees.clear();
+        allCoffees = null;
+        pinned = Set.of();
+    }
+
+    public synchronized int size() {
+        return coffees.size();
+    }
+
+    private static Coffee copyOf(Coffee coffee) {
+        Coffee copy = new Coffee(coffee.getName(), coffee.getVersion());
+        copy.setId(coffee.getId());
+        return copy;
+    }
+}
@@ -0,0 +1,27 @@
+package com.pluralsight.coffeeservice.service;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Records on the current request that the service answered it from last known good values instead of the database,
+ * so that the web layer can mark the response as stale. Does nothing outside of a request.
+ */
+public final class StaleReads {
+    private static final String STALE_ATTRIBUTE = StaleReads.class.getName() + ".STALE";
+
+    private StaleReads() {
+    }
+
+    public static void markStale() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(STALE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public static boolean isStale() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(STALE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.pluralsight.coffeeservice.stats;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Catalog statistics maintained incrementally from the write paths of the coffee service, so that reading them
+ * never touches the database. Counters are striped ({@link LongAdder}) to keep writers from contending.
+ * <p>
+ * The statistics drift when writes go through another instance, when a coffee is deleted without its version
+ * being known, or when a write races with a reconciliation; CoffeeStatisticsReconciler periodically replaces
+ * them with values read from the database.
+ */
+@Component
+public class CoffeeStatistics {
+    private static final Comparator<Coffee> MOST_UPDATED_FIRST = Comparator
+            .comparingInt(Coffee::getVersion).reversed()
+            .thenComparing(Coffee::getId);
+
+    /**
+     * The number of coffees listed as most updated
+     */
+    @Value("${coffee.stats.most-updated-size:10}")
+    private int mostUpdatedSize = 10;
+
+    private final Clock clock;
+    private final LongAdder count = new LongAdder();
+    private final EventRate created;
+    private final EventRate updated;
+    private final EventRate deleted;
+    private volatile ConcurrentHashMap<Integer, LongAdder> versions = new ConcurrentHashMap<>();
+
+    /**
+     * The most updated coffees, guarded by its own lock; only writes and reads of the statistics take it
+     */
+    private final TreeSet<Coffee> mostUpdated = new TreeSet<>(MOST_UPDATED_FIRST);
+    private final Map<Long, Coffee> mostUpdatedById = new HashMap<>();
+
+    private volatile Instant reconciledAt;
+
+    public CoffeeStatistics() {
+        this(Clock.systemUTC());
+    }
+
+    CoffeeStatistics(Clock clock) {
+        this.clock = clock;
+        this.created = new EventRate(clock);
+        this.updated = new EventRate(clock);
+        this.deleted = new EventRate(clock);
+    }
+
+    public int getMostUpdatedSize() {
+        return mostUpdatedSize;
+    }
+
+    public void recordCreated(Coffee coffee) {
+        count.increment();
+        created.record();
+        versions.computeIfAbsent(coffee.getVersion(), version -> new LongAdder()).increment();
+        offerMostUpdated(coffee);
+    }
+
+    /**
+     * Records an update of the coffee to its current version from the specified previous version, which is null
+     * when it is not known
+     */
+    public void recordUpdated(Integer previousVersion, Coffee coffee) {
+        updated.record();
+        if (previousVersion != null) {
+            decrementVersion(previousVersion);
+        }
+        versions.computeIfAbsent(coffee.getVersion(), version -> new LongAdder()).increment();
+        offerMostUpdated(coffee);
+    }
+
+    /**
+     * Records the deletion of the coffee with the specified ID and version, which is null when it is not known
+     */
+    public void recordDeleted(Long id, Integer version) {
+        count.decrement();
+        deleted.record();
+        if (version != null) {
+            decrementVersion(version);
+        }
+        synchronized (mostUpdated) {
+            Coffee previous = mostUpdatedById.remove(id);
+            if (previous != null) {
+                mostUpdated.remove(previous);
+            }
+        }
+    }
+
+    /**
+     * Replaces the counts, the version histogram and the most updated coffees with values read from the database.
+     * Event rates are not affected.
+     */
+    public void reconcile(Map<Integer, Long> versionCounts, List<Coffee> mostUpdatedCoffees) {
+        ConcurrentHashMap<Integer, LongAdder> reconciled = new ConcurrentHashMap<>();
+        versionCounts.forEach((version, versionCount) -> {
+            LongAdder adder = new LongAdder();
+            adder.add(versionCount);
+            reconciled.put(version, adder);
+        });
+        versions = reconciled;
+
+        count.reset();
+        count.add(versionCounts.values().stream().mapToLong(Long::longValue).sum());
+
+        synchronized (mostUpdated) {
+            mostUpdated.clear();
+            mostUpdatedById.clear();
+            mostUpdatedCoffees.forEach(this::offerMostUpdated);
+        }
+        reconciledAt = clock.instant();
+    }
+
+    /**
+     * Forgets all counts, rates and most updated coffees, as if no coffee had been written or reconciled yet
+     */
+    public void clear() {
+        versions = new ConcurrentHashMap<>();
+        count.reset();
+        created.clear();
+        updated.clear();
+        deleted.clear();
+        synchronized (mostUpdated) {
+            mostUpdated.clear();
+            mostUpdatedById.clear();
+        }
+        reconciledAt = null;
+    }
+
+    public CoffeeStats getStats() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        rates.put("created", created.perSecond());
+        rates.put("updated", updated.perSecond());
+        rates.put("deleted", deleted.perSecond());
+
+        Map<Integer, Long> histogram = new TreeMap<>();
+        versions.forEach((version, adder) -> {
+            long versionCount = adder.sum();
+            if (versionCount > 0) {
+                histogram.put(version, versionCount);
+            }
+        });
+
+        List<Coffee> mostUpdatedCoffees;
+        synchronized (mostUpdated) {
+            mostUpdatedCoffees = mostUpdated.stream().map(CoffeeStatistics::copy).toList();
+        }
+        return new CoffeeStats(Math.max(count.sum(), 0), rates, histogram, mostUpdatedCoffees, reconciledAt);
+    }
+
+    private void decrementVersion(int version) {
+        LongAdder adder = versions.get(version);
+        if (adder != null) {
+            adder.decrement();
+        }
+    }
+
+    private void offerMostUpdated(Coffee coffee) {
+        if (coffee.getId() == null) {
+            return;
+        }
+        synchronized (mostUpdated) {
+            Coffee previous = mostUpdatedById.remove(coffee.getId());
+            if (previous != null) {
+                mostUpdated.remove(previous);
+            }
+            if (mostUpdatedSize > 0 && (mostUpdated.size() < mostUpdatedSize
+                    || MOST_UPDATED_FIRST.compare(coffee, mostUpdated.last()) < 0)) {
+                Coffee entry = copy(coffee);
+                mostUpdated.add(entry);
+                mostUpdatedById.put(entry.getId(), entry);
+                if (mostUpdated.size() > mostUpdatedSize) {
+                    mostUpdatedById.remove(mostUpdated.pollLast().getId());
+                }
+            }
+        }
+    }
+
+    private static Coffee copy(Coffee coffee) {
+        Coffee copy = new Coffee(coffee.getName(), coffee.getVersion());
+        copy.setId(coffee.getId());
+        return copy;
+    }
+}
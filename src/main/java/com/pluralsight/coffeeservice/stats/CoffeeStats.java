@@ -0,0 +1,63 @@
+package com.pluralsight.coffeeservice.stats;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+/**
+ * A snapshot of the catalog statistics.
+ */
+public class CoffeeStats {
+    private final long count;
+
+    /**
+     * The average number of coffees created, updated and deleted per second over the last minute
+     */
+    private final Map<String, Double> ratesPerSecond;
+
+    /**
+     * The number of coffees at each version, in version order
+     */
+    private final Map<Integer, Long> versionHistogram;
+
+    /**
+     * The coffees with the highest versions, highest first
+     */
+    private final List<Coffee> mostUpdated;
+
+    /**
+     * When the statistics were last replaced with values read from the database, or null if they never were
+     */
+    private final Instant reconciledAt;
+
+    public CoffeeStats(long count, Map<String, Double> ratesPerSecond, Map<Integer, Long> versionHistogram,
+            List<Coffee> mostUpdated, Instant reconciledAt) {
+        this.count = count;
+        this.ratesPerSecond = ratesPerSecond;
+        this.versionHistogram = versionHistogram;
+        this.mostUpdated = mostUpdated;
+        this.reconciledAt = reconciledAt;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, Double> getRatesPerSecond() {
+        return ratesPerSecond;
+    }
+
+    public Map<Integer, Long> getVersionHistogram() {
+        return versionHistogram;
+    }
+
+    public List<Coffee> getMostUpdated() {
+        return mostUpdated;
+    }
+
+    public Instant getReconciledAt() {
+        return reconciledAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pluralsight.coffeeservice.stats;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events in one-second buckets over a sliding window. Recording an event increments a striped counter, so
+ * concurrent writers do not contend on a single cache line; a bucket is reset by the first event of a new second
+ * that reuses it, which may drop an event recorded concurrently with the reset.
+ */
+class EventRate {
+    static final int WINDOW_SECONDS = 60;
+
+    private final Clock clock;
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(WINDOW_SECONDS);
+    private final LongAdder[] buckets = new LongAdder[WINDOW_SECONDS];
+
+    EventRate(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record() {
+        long second = clock.millis() / 1000;
+        int index = (int) (second % WINDOW_SECONDS);
+        long bucketSecond = bucketSeconds.get(index);
+        if (bucketSecond != second && bucketSeconds.compareAndSet(index, bucketSecond, second)) {
+            buckets[index].reset();
+        }
+        buckets[index].increment();
+    }
+
+    void clear() {
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            bucketSeconds.set(i, 0);
+            buckets[i].reset();
+        }
+    }
+
+    /**
+     * Returns the average number of events per second over the last complete window, excluding the current second
+     */
+    double perSecond() {
+        long now = clock.millis() / 1000;
+        long events = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            long age = now - bucketSeconds.get(i);
+            if (age > 0 && age <= WINDOW_SECONDS) {
+                events += buckets[i].sum();
+            }
+        }
+        return (double) events / WINDOW_SECONDS;
+    }
+}
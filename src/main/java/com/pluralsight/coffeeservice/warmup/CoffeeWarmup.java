@@ -0,0 +1,252 @@
+package com.pluralsight.coffeeservice.warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import javax.sql.DataSource;
+
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch;
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.service.CoffeeService;
+import com.pluralsight.coffeeservice.web.CoffeeController;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Warms the service up after start-up and before it reports ready. Spring Boot only marks the application as
+ * accepting traffic once all application runners have completed, so the readiness probe reports
+ * <code>REFUSING_TRAFFIC</code> until this runner returns. The warm-up:
+ * <ol>
+ *     <li>opens <code>poolConnections</code> connections at once to fill the connection pool,</li>
+ *     <li>loads the preloaded coffees into the last known good cache, and</li>
+ *     <li>replays a synthetic read-only workload over those coffees through the real request paths, over HTTP when
+ *     the embedded server is running and by calling {@link CoffeeController} directly otherwise, so that the JIT
+ *     compiles the hot paths before real traffic arrives.</li>
+ * </ol>
+ * The warm-up stops when its time budget is spent. Its progress is logged and reported by the
+ * <code>coffeeWarmup</code> health indicator.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(prefix = "coffee.warmup", name = "enabled", havingValue = "true")
+public class CoffeeWarmup implements ApplicationRunner, HealthIndicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoffeeWarmup.class);
+
+    public enum Phase {
+        PENDING, PRIMING_POOL, PRELOADING, REPLAYING, COMPLETE
+    }
+
+    @Autowired
+    private WarmupProperties properties;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CoffeeService coffeeService;
+
+    @Autowired
+    private CoffeeController coffeeController;
+
+    @Autowired(required = false)
+    private HotKeySketch hotKeySketch;
+
+    private volatile Phase phase = Phase.PENDING;
+    private volatile int completedRequests;
+    private volatile long deadlineNanos;
+
+    /**
+     * Fails the start-up if the request mix cannot be replayed
+     */
+    @PostConstruct
+    void validateMix() {
+        Map<String, Integer> mix = properties.getMix();
+        if (mix.values().stream().anyMatch(weight -> weight == null || weight < 0)) {
+            throw new IllegalStateException("coffee.warmup.mix weights must not be negative: " + mix);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalStateException("coffee.warmup.mix weights must add up to more than 0: " + mix);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.nanoTime();
+        deadlineNanos = start + properties.getTimeBudget().toNanos();
+
+        try {
+            phase = Phase.PRIMING_POOL;
+            primeConnectionPool();
+
+            phase = Phase.PRELOADING;
+            List<Long> ids = preload();
+
+            phase = Phase.REPLAYING;
+            replay(ids);
+        } catch (RuntimeException e) {
+            // A failed warm-up only costs latency; it must not keep the service from starting
+            LOGGER.warn("Warm-up failed in phase {}", phase, e);
+        }
+        if (hotKeySketch != null) {
+            // The replayed reads are synthetic and must not be reported as hot keys
+            hotKeySketch.clear();
+        }
+
+        phase = Phase.COMPLETE;
+        LOGGER.info("Warm-up completed {} of {} requests in {} ms", completedRequests, properties.getRequests(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("phase", phase)
+                .withDetail("completedRequests", completedRequests)
+                .withDetail("requests", properties.getRequests())
+                .build();
+    }
+
+    private void primeConnectionPool() {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < properties.getPoolConnections() && !budgetSpent(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Could only open {} connections while priming the pool", connections.size(), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    LOGGER.debug("Could not return a warm-up connection", e);
+                }
+            }
+        }
+        LOGGER.info("Warm-up primed {} database connections", connections.size());
+    }
+
+    /**
+     * Loads the preloaded coffees through the service, which reads them from the sharded store when it is enabled,
+     * guards the reads with the circuit breaker and remembers the coffees as last known good values, and returns
+     * their IDs.
+     */
+    private List<Long> preload() {
+        List<Long> ids = properties.getPreloadIds();
+        List<Coffee> coffees = ids.isEmpty()
+                ? coffeeService.findFirst(properties.getPreloadCount())
+                : coffeeService.findAllById(ids);
+        LOGGER.info("Warm-up preloaded {} coffees", coffees.size());
+        return coffees.stream().map(Coffee::getId).toList();
+    }
+
+    private void replay(List<Long> ids) {
+        if (ids.isEmpty()) {
+            LOGGER.info("Warm-up has no coffees to replay requests against");
+            return;
+        }
+
+        Map<String, Integer> mix = properties.getMix();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        IntConsumer get = requestFor("get", ids);
+        IntConsumer batch = requestFor("batch", ids);
+        IntConsumer list = requestFor("list", ids);
+
+        int requests = properties.getRequests();
+        int progressStep = Math.max(requests / 10, 1);
+        for (int i = 0; i < requests; i++) {
+            if (budgetSpent()) {
+                LOGGER.warn("Warm-up time budget of {} spent after {} of {} requests",
+                        properties.getTimeBudget(), i, requests);
+                return;
+            }
+
+            // Spread the kinds of request evenly over the run according to their weights
+            int slot = i % totalWeight;
+            if (slot < mix.getOrDefault("get", 0)) {
+                get.accept(i);
+            } else if (slot < mix.getOrDefault("get", 0) + mix.getOrDefault("batch", 0)) {
+                batch.accept(i);
+            } else {
+                list.accept(i);
+            }
+
+            completedRequests = i + 1;
+            if (completedRequests % progressStep == 0) {
+                LOGGER.info("Warm-up progress: {} of {} requests", completedRequests, requests);
+            }
+        }
+    }
+
+    private IntConsumer requestFor(String kind, List<Long> ids) {
+        int batchSize = Math.min(ids.size(), 20);
+        if (applicationContext instanceof WebServerApplicationContext webContext && webContext.getWebServer() != null) {
+            RestClient restClient = RestClient.create("http://localhost:" + webContext.getWebServer().getPort());
+            return switch (kind) {
+                case "get" -> i -> exchange(() -> restClient.get()
+                        .uri("/coffee/{id}", ids.get(i % ids.size())).retrieve().toBodilessEntity());
+                case "batch" -> i -> exchange(() -> restClient.get()
+                        .uri(uri -> uri.path("/coffees").queryParam("ids", batchOf(ids, i, batchSize).toArray()).build())
+                        .retrieve().toBodilessEntity());
+                default -> i -> exchange(() -> restClient.get().uri("/coffees").retrieve().toBodilessEntity());
+            };
+        }
+        return switch (kind) {
+            case "get" -> i -> coffeeController.getCoffee(ids.get(i % ids.size()));
+            case "batch" -> i -> coffeeController.getCoffeesById(batchOf(ids, i, batchSize));
+            default -> i -> coffeeController.getCoffees();
+        };
+    }
+
+    private static List<Long> batchOf(List<Long> ids, int offset, int batchSize) {
+        List<Long> batch = new ArrayList<>(batchSize);
+        for (int j = 0; j < batchSize; j++) {
+            batch.add(ids.get((offset + j) % ids.size()));
+        }
+        return batch;
+    }
+
+    private static void exchange(Runnable request) {
+        try {
+            request.run();
+        } catch (RestClientResponseException e) {
+            // An error response still exercised the request path
+        }
+    }
+
+    private boolean budgetSpent() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.pluralsight.coffeeservice.warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the start-up warm-up, bound from the <code>coffee.warmup</code> properties.
+ */
+@ConfigurationProperties(prefix = "coffee.warmup")
+public class WarmupProperties {
+    private boolean enabled;
+
+    /**
+     * The longest the warm-up may delay readiness; whatever is left of the workload is skipped
+     */
+    private Duration timeBudget = Duration.ofSeconds(60);
+
+    /**
+     * The number of connections to open at once to fill the connection pool
+     */
+    private int poolConnections = 10;
+
+    /**
+     * Coffees to load into the last known good cache; when empty, the first <code>preloadCount</code> coffees are
+     * loaded instead
+     */
+    private List<Long> preloadIds = new ArrayList<>();
+    private int preloadCount = 100;
+
+    /**
+     * The number of synthetic requests to replay, and their relative weights by kind: <code>get</code>
+     * (GET /coffee/{id}), <code>batch</code> (GET /coffees?ids=...) and <code>list</code> (GET /coffees)
+     */
+    private int requests = 2000;
+    private Map<String, Integer> mix = new LinkedHashMap<>(Map.of("get", 80, "batch", 15, "list", 5));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(Duration timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public int getPoolConnections() {
+        return poolConnections;
+    }
+
+    public void setPoolConnections(int poolConnections) {
+        this.poolConnections = poolConnections;
+    }
+
+    public List<Long> getPreloadIds() {
+        return preloadIds;
+    }
+
+    public void setPreloadIds(List<Long> preloadIds) {
+        this.preloadIds = preloadIds;
+    }
+
+    public int getPreloadCount() {
+        return preloadCount;
+    }
+
+    public void setPreloadCount(int preloadCount) {
+        this.preloadCount = preloadCount;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public void setRequests(int requests) {
+        this.requests = requests;
+    }
+
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    public void setMix(Map<String, Integer> mix) {
+        this.mix = mix;
+    }
+}
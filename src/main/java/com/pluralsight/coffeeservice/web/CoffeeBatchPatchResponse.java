@@ -0,0 +1,24 @@
+package com.pluralsight.coffeeservice.web;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+/**
+ * The result of a batched patch: the patched coffees in the order of the request, whether or not the patch changed
+ * them, and the IDs of the coffees that were not patched because they do not exist or have a different version.
+ */
+public class CoffeeBatchPatchResponse extends CoffeeBatchResponse {
+    private final List<Long> conflicts;
+
+    public CoffeeBatchPatchResponse(List<Coffee> coffees, Map<Long, String> etags, List<Long> notFound,
+            List<Long> conflicts) {
+        super(coffees, etags, notFound);
+        this.conflicts = conflicts;
+    }
+
+    public List<Long> getConflicts() {
+        return conflicts;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pluralsight.coffeeservice.web;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+/**
+ * Response body for GET /coffees?ids=...: the coffees that were found, in the order they were requested, the ETag
+ * of each found coffee keyed by ID, and the requested IDs that do not exist.
+ */
+public class CoffeeBatchResponse {
+    private final List<Coffee> coffees;
+    private final Map<Long, String> etags;
+    private final List<Long> notFound;
+
+    public CoffeeBatchResponse(List<Coffee> coffees, Map<Long, String> etags, List<Long> notFound) {
+        this.coffees = coffees;
+        this.etags = etags;
+        this.notFound = notFound;
+    }
+
+    public List<Coffee> getCoffees() {
+        return coffees;
+    }
+
+    public Map<Long, String> getEtags() {
+        return etags;
+    }
+
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+}
@@ -1,32 +1,79 @@
 package com.pluralsight.coffeeservice.web;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch;
 import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.DatabaseUnavailableException;
+import com.pluralsight.coffeeservice.search.CoffeeSuggestion;
 import com.pluralsight.coffeeservice.service.CoffeeService;
+import com.pluralsight.coffeeservice.stats.CoffeeStats;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class CoffeeController {
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    /**
+     * The properties of a coffee that a patch may not change
+     */
+    private static final Set<String> READ_ONLY_PROPERTIES = Set.of("id", "version");
+
+    private enum PatchResult {
+        CHANGED, UNCHANGED, INVALID
+    }
+
     @Autowired
     private CoffeeService coffeeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Counts the coffees read by the GET endpoints; writes, which also look coffees up, are not counted. Absent when
+     * <code>coffee.hotkeys.enabled=false</code>.
+     */
+    @Autowired(required = false)
+    private HotKeySketch hotKeySketch;
+
     @GetMapping("/coffee/{id}")
     public ResponseEntity<?> getCoffee(@PathVariable Long id) {
+        if (hotKeySketch != null) {
+            hotKeySketch.record(id);
+        }
         return coffeeService.findById(id)
                 .map(coffee -> {
                     try {
@@ -47,6 +94,41 @@ public class CoffeeController {
         return coffeeService.findAll();
     }
 
+    @GetMapping(value = "/coffees", params = "ids")
+    public CoffeeBatchResponse getCoffeesById(@RequestParam List<Long> ids) {
+        if (hotKeySketch != null) {
+            ids.stream().distinct().forEach(hotKeySketch::record);
+        }
+        Map<Long, Coffee> found = coffeeService.findAllById(ids).stream()
+                .collect(Collectors.toMap(Coffee::getId, Function.identity()));
+
+        // Rebuild the response in the order the IDs were requested
+        List<Coffee> coffees = new ArrayList<>(found.size());
+        Map<Long, String> etags = new LinkedHashMap<>();
+        List<Long> notFound = new ArrayList<>();
+        ids.stream().distinct().forEach(id -> {
+            Coffee coffee = found.get(id);
+            if (coffee == null) {
+                notFound.add(id);
+            } else {
+                coffees.add(coffee);
+                etags.put(id, "\"" + coffee.getVersion() + "\"");
+            }
+        });
+        return new CoffeeBatchResponse(coffees, etags, notFound);
+    }
+
+    @GetMapping("/coffees/suggest")
+    public List<CoffeeSuggestion> suggestCoffees(@RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return coffeeService.suggest(query, Math.min(Math.max(limit, 0), MAX_SUGGESTIONS));
+    }
+
+    @GetMapping("/coffees/stats")
+    public CoffeeStats getStats() {
+        return coffeeService.getStats();
+    }
+
     @PostMapping("/coffee")
     public ResponseEntity<Coffee> createCoffee(@RequestBody Coffee coffee) {
         Coffee newCoffee = coffeeService.create(coffee);
@@ -87,14 +169,158 @@ public class CoffeeController {
         }).orElse(ResponseEntity.notFound().build());
     }
 
-    @DeleteMapping("/coffee/{id}")
-    public ResponseEntity<?> deleteCoffee(@PathVariable Long id) {
-        // Get the existing product
+    /**
+     * Applies a JSON Merge Patch to the coffee. Like PUT, requires the current version in If-Match. Only the columns
+     * the patch changes are written, and a patch that changes nothing is not written at all and keeps the version.
+     */
+    @PatchMapping(value = "/coffee/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patchCoffee(@RequestBody JsonNode patch,
+                                         @PathVariable Long id,
+                                         @RequestHeader("If-Match") Integer ifMatch) {
         Optional<Coffee> existingCoffee = coffeeService.findById(id);
+        return existingCoffee.map(c -> {
+            if (c.getVersion() != ifMatch) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
 
-        return existingCoffee.map(coffee -> {
-            coffeeService.deleteById(coffee.getId());
-            return ResponseEntity.ok().build();
+            PatchResult result = applyPatch(c, patch);
+            if (result == PatchResult.INVALID) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            // Only write the coffee if the patch changed it
+            Coffee patchedCoffee = c;
+            if (result == PatchResult.CHANGED) {
+                c.setVersion(c.getVersion() + 1);
+                patchedCoffee = coffeeService.save(c);
+            }
+            try {
+                return ResponseEntity.ok()
+                        .location(new URI("/coffee/" + patchedCoffee.getId()))
+                        .eTag(Integer.toString(patchedCoffee.getVersion()))
+                        .body(patchedCoffee);
+            } catch (URISyntaxException e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
         }).orElse(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Applies a JSON Merge Patch to each of the coffees whose version matches the expected one, and saves the ones
+     * that changed in a single transaction. Coffees that do not exist or have a different version are reported and
+     * skipped; if any patch is invalid, nothing is saved.
+     */
+    @PatchMapping(value = "/coffees", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> patchCoffees(@RequestBody List<CoffeePatch> patches) {
+        Set<Long> ids = new HashSet<>();
+        for (CoffeePatch patch : patches) {
+            if (patch.getId() == null || patch.getVersion() == null || patch.getPatch() == null
+                    || !ids.add(patch.getId())) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Map<Long, Coffee> found = coffeeService.findAllById(new ArrayList<>(ids)).stream()
+                .collect(Collectors.toMap(Coffee::getId, Function.identity()));
+        List<Coffee> coffees = new ArrayList<>();
+        List<Coffee> changed = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        List<Long> conflicts = new ArrayList<>();
+        for (CoffeePatch patch : patches) {
+            Coffee coffee = found.get(patch.getId());
+            if (coffee == null) {
+                notFound.add(patch.getId());
+            } else if (coffee.getVersion() != patch.getVersion()) {
+                conflicts.add(patch.getId());
+            } else {
+                PatchResult result = applyPatch(coffee, patch.getPatch());
+                if (result == PatchResult.INVALID) {
+                    return ResponseEntity.badRequest().build();
+                }
+                if (result == PatchResult.CHANGED) {
+                    coffee.setVersion(coffee.getVersion() + 1);
+                    changed.add(coffee);
+                }
+                coffees.add(coffee);
+            }
+        }
+
+        Map<Long, Coffee> saved = coffeeService.saveAll(changed).stream()
+                .collect(Collectors.toMap(Coffee::getId, Function.identity()));
+        List<Coffee> patchedCoffees = coffees.stream()
+                .map(coffee -> saved.getOrDefault(coffee.getId(), coffee))
+                .toList();
+        Map<Long, String> etags = new LinkedHashMap<>();
+        patchedCoffees.forEach(coffee -> etags.put(coffee.getId(), "\"" + coffee.getVersion() + "\""));
+        return ResponseEntity.ok(new CoffeeBatchPatchResponse(patchedCoffees, etags, notFound, conflicts));
+    }
+
+    @DeleteMapping("/coffee/{id}")
+    public ResponseEntity<?> deleteCoffee(@PathVariable Long id,
+                                          @RequestHeader(value = "If-Match", required = false) Integer ifMatch) {
+        if (coffeeService.deleteById(id, ifMatch) > 0) {
+            return ResponseEntity.ok().build();
+        }
+
+        // Nothing was deleted: either the coffee does not exist or it has a different version
+        if (ifMatch != null && coffeeService.findById(id).isPresent()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Applies the patch to the coffee in place. A patch is invalid if it is not an object, changes a read-only
+     * property, adds a property the coffee does not have, or has a value of the wrong type.
+     */
+    private PatchResult applyPatch(Coffee coffee, JsonNode patch) {
+        if (!patch.isObject()) {
+            return PatchResult.INVALID;
+        }
+        ObjectNode original = objectMapper.valueToTree(coffee);
+        JsonNode patched = JsonMergePatch.apply(original, patch);
+        if (patched.equals(original)) {
+            return PatchResult.UNCHANGED;
+        }
+
+        ObjectNode update = objectMapper.createObjectNode();
+        for (Map.Entry<String, JsonNode> property : original.properties()) {
+            JsonNode value = patched.has(property.getKey()) ? patched.get(property.getKey()) : objectMapper.nullNode();
+            if (value.equals(property.getValue())) {
+                continue;
+            }
+            if (READ_ONLY_PROPERTIES.contains(property.getKey())) {
+                return PatchResult.INVALID;
+            }
+            update.set(property.getKey(), value);
+        }
+        for (Map.Entry<String, JsonNode> property : patched.properties()) {
+            if (!original.has(property.getKey())) {
+                return PatchResult.INVALID;
+            }
+        }
+
+        try {
+            objectMapper.readerForUpdating(coffee).readValue(update);
+        } catch (IOException e) {
+            return PatchResult.INVALID;
+        }
+        return PatchResult.CHANGED;
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        // The coffee was changed or deleted between reading and saving it
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(DatabaseUnavailableException.class)
+    public ResponseEntity<?> handleDatabaseUnavailable(DatabaseUnavailableException e) {
+        // Round up so that clients never retry before the circuit breaker lets calls through again, and ask for at
+        // least a second when the breaker is already letting trial calls through
+        long retryAfterSeconds = Math.max((e.getRetryAfter().toMillis() + 999) / 1000, 1);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .build();
+    }
 }
@@ -0,0 +1,83 @@
+package com.pluralsight.coffeeservice.web;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.stream.Stream;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes {@link Coffee} responses, and responses declared as an <code>Iterable</code> or <code>Stream</code> of
+ * coffees, with {@link CoffeeJsonWriter} instead of Jackson. Spring Boot registers it ahead of the Jackson converter;
+ * every other type, and all request bodies, are still handled by Jackson.
+ */
+@Component
+public class CoffeeHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private final CoffeeJsonWriter writer = new CoffeeJsonWriter(64);
+
+    public CoffeeHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Coffee.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (type instanceof ParameterizedType parameterizedType
+                && parameterizedType.getRawType() instanceof Class<?> rawType
+                && (Iterable.class.isAssignableFrom(rawType) || Stream.class.isAssignableFrom(rawType))) {
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            return arguments.length == 1
+                    && arguments[0] instanceof Class<?> elementType
+                    && Coffee.class.isAssignableFrom(elementType);
+        }
+        return supports(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (object instanceof Coffee coffee) {
+            writer.write(coffee, outputMessage.getBody());
+        } else if (object instanceof Iterable<?> coffees) {
+            writer.writeArray(coffees.iterator(), outputMessage.getBody());
+        } else if (object instanceof Stream<?> coffees) {
+            try (coffees) {
+                writer.writeArray(coffees.iterator(), outputMessage.getBody());
+            }
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Coffee requests are read by Jackson", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Coffee requests are read by Jackson", inputMessage);
+    }
+}
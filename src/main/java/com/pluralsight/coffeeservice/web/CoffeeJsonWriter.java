@@ -0,0 +1,220 @@
+package com.pluralsight.coffeeservice.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+/**
+ * Writes coffees as JSON directly into pooled byte buffers, producing the same bytes as Jackson's default
+ * serialization of {@link Coffee} (<code>{"id":1,"name":"Espresso","version":1}</code>) without allocating anything
+ * per coffee: numbers are formatted in place, and names are UTF-8 encoded and escaped one character at a time.
+ * <p>
+ * A buffer is borrowed from the pool for each response and returned when the response is written; when the pool is
+ * empty a new buffer is allocated, and when it is full the extra buffer is discarded.
+ */
+public class CoffeeJsonWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The longest encoding of a single name character: a <code>\\uXXXX</code> escape
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    /**
+     * The largest number of bytes needed to write a long in decimal, including the sign
+     */
+    private static final int MAX_LONG_BYTES = 20;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final byte[] ID_FIELD = "{\"id\":".getBytes();
+    private static final byte[] NAME_FIELD = ",\"name\":".getBytes();
+    private static final byte[] VERSION_FIELD = ",\"version\":".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes();
+
+    /**
+     * For each ASCII character: 0 if it is written as is, 'u' if it is written as a <code>\\u00XX</code> escape, or
+     * the character that follows the backslash of its short escape
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    private final BlockingQueue<byte[]> bufferPool;
+
+    public CoffeeJsonWriter(int maxPooledBuffers) {
+        this.bufferPool = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    public void write(Coffee coffee, OutputStream outputStream) throws IOException {
+        Output output = new Output(outputStream);
+        try {
+            output.writeCoffee(coffee);
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    public void writeArray(Iterator<?> coffees, OutputStream outputStream) throws IOException {
+        Output output = new Output(outputStream);
+        try {
+            output.ensureCapacity(1);
+            output.buffer[output.position++] = '[';
+            boolean first = true;
+            while (coffees.hasNext()) {
+                if (!first) {
+                    output.ensureCapacity(1);
+                    output.buffer[output.position++] = ',';
+                }
+                output.writeCoffee((Coffee) coffees.next());
+                first = false;
+            }
+            output.ensureCapacity(1);
+            output.buffer[output.position++] = ']';
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    private byte[] borrowBuffer() {
+        byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private final class Output {
+        private final OutputStream outputStream;
+        private byte[] buffer;
+        private int position;
+
+        private Output(OutputStream outputStream) {
+            this.outputStream = outputStream;
+            this.buffer = borrowBuffer();
+        }
+
+        private void writeCoffee(Coffee coffee) throws IOException {
+            writeBytes(ID_FIELD);
+            Long id = coffee.getId();
+            if (id == null) {
+                writeBytes(NULL);
+            } else {
+                writeLong(id);
+            }
+            writeBytes(NAME_FIELD);
+            writeString(coffee.getName());
+            writeBytes(VERSION_FIELD);
+            writeLong(coffee.getVersion());
+            ensureCapacity(1);
+            buffer[position++] = '}';
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeLong(long value) throws IOException {
+            if (value == Long.MIN_VALUE) {
+                writeBytes(LONG_MIN_VALUE);
+                return;
+            }
+            ensureCapacity(MAX_LONG_BYTES);
+            if (value < 0) {
+                buffer[position++] = '-';
+                value = -value;
+            }
+
+            // Write the digits backwards from the end of the number, then move past them
+            int length = 1;
+            for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+                length++;
+            }
+            int index = position + length;
+            do {
+                buffer[--index] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            position += length;
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeBytes(NULL);
+                return;
+            }
+            ensureCapacity(1);
+            buffer[position++] = '"';
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                ensureCapacity(MAX_CHAR_BYTES);
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    byte escape = ESCAPES[c];
+                    if (escape == 0) {
+                        buffer[position++] = (byte) c;
+                    } else if (escape == 'u') {
+                        buffer[position++] = '\\';
+                        buffer[position++] = 'u';
+                        buffer[position++] = '0';
+                        buffer[position++] = '0';
+                        buffer[position++] = HEX[c >> 4];
+                        buffer[position++] = HEX[c & 0xF];
+                    } else {
+                        buffer[position++] = '\\';
+                        buffer[position++] = escape;
+                    }
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Like Jackson, write characters outside the Basic Multilingual Plane as escaped surrogate pairs
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'u';
+                    buffer[position++] = HEX[c >> 12];
+                    buffer[position++] = HEX[(c >> 8) & 0xF];
+                    buffer[position++] = HEX[(c >> 4) & 0xF];
+                    buffer[position++] = HEX[c & 0xF];
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            ensureCapacity(1);
+            buffer[position++] = '"';
+        }
+
+        private void ensureCapacity(int bytes) throws IOException {
+            if (position + bytes > buffer.length) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+
+        private void release() {
+            bufferPool.offer(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pluralsight.coffeeservice.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One entry of a batched patch: the coffee to patch, the version the client expects it to have, and the JSON Merge
+ * Patch to apply to it.
+ */
+public class CoffeePatch {
+    private Long id;
+    private Integer version;
+    private JsonNode patch;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public JsonNode getPatch() {
+        return patch;
+    }
+
+    public void setPatch(JsonNode patch) {
+        this.patch = patch;
+    }
+}
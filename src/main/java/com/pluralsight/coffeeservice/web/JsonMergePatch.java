@@ -0,0 +1,35 @@
+package com.pluralsight.coffeeservice.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Applies a JSON Merge Patch (RFC 7396): members of the patch replace the members of the target with the same name,
+ * recursively for objects, and null members remove them.
+ */
+final class JsonMergePatch {
+    private JsonMergePatch() {
+    }
+
+    /**
+     * Returns the result of applying the patch to the target, without modifying either of them.
+     */
+    static JsonNode apply(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch.deepCopy();
+        }
+
+        ObjectNode result = target != null && target.isObject()
+                ? ((ObjectNode) target).deepCopy()
+                : JsonNodeFactory.instance.objectNode();
+        patch.properties().forEach(member -> {
+            if (member.getValue().isNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.set(member.getKey(), apply(result.get(member.getKey()), member.getValue()));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.pluralsight.coffeeservice;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestEntityManager;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.jdbc.Sql;
+
+/**
+ * Boots the whole application against an in-memory database of its own, with MockMvc and a TestEntityManager.
+ * <p>
+ * Every class with this annotation has the same configuration, so they all share one cached application context,
+ * and with it one database and the same singleton caches. They therefore hold a common resource lock: they run one
+ * after another, while classes with other contexts run alongside them. The coffee table is emptied before each
+ * class so that no class sees rows committed by another, and the in-memory state of the singletons is emptied before
+ * each test by {@link InMemoryStateResetListener}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestEntityManager
+@ActiveProfiles("test")
+@Sql(scripts = "/reset-coffees.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_CLASS)
+@TestExecutionListeners(listeners = InMemoryStateResetListener.class,
+        mergeMode = TestExecutionListeners.MergeMode.MERGE_WITH_DEFAULTS)
+@ResourceLock("application-context")
+public @interface ApplicationContextTest {
+}
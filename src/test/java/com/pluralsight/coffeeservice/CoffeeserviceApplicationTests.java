@@ -2,9 +2,8 @@ package com.pluralsight.coffeeservice;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@ApplicationContextTest
 class CoffeeserviceApplicationTests {
 
 	@Test
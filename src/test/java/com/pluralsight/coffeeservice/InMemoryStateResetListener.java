@@ -0,0 +1,28 @@
+package com.pluralsight.coffeeservice;
+
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch;
+import com.pluralsight.coffeeservice.search.CoffeeNameIndex;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+/**
+ * Empties the in-memory state that the singletons of a shared application context keep about coffees: the last known
+ * good cache, the name index, the statistics and the hot key sketch. Test transactions and the SQL reset of the
+ * coffee table do not reach them, so without this a test would see coffees read or written by the tests that ran
+ * before it in the same context. Runs before every test method, when the coffee table is in the state that the test
+ * class starts from.
+ */
+public class InMemoryStateResetListener implements TestExecutionListener {
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        ApplicationContext context = testContext.getApplicationContext();
+        context.getBeanProvider(LastKnownGoodCache.class).ifAvailable(LastKnownGoodCache::clear);
+        context.getBeanProvider(CoffeeNameIndex.class).ifAvailable(CoffeeNameIndex::clear);
+        context.getBeanProvider(CoffeeStatistics.class).ifAvailable(CoffeeStatistics::clear);
+        context.getBeanProvider(HotKeySketch.class).ifAvailable(HotKeySketch::clear);
+    }
+}
@@ -0,0 +1,89 @@
+package com.pluralsight.coffeeservice;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+/**
+ * Writes the wall-clock time of the test run and of each test class, with the thread that ran it, to
+ * <code>target/test-timing.txt</code>. Dividing the sum of the class times by the wall-clock time gives the average
+ * number of classes that ran at once; class times stretch when classes compete for too few cores, so compare the
+ * wall-clock time with a serial run (<code>-Djunit.jupiter.execution.parallel.enabled=false</code>) to see the
+ * actual gain. Registered through <code>META-INF/services</code>.
+ */
+public class TestTimingListener implements TestExecutionListener {
+    private static final Path REPORT = Path.of("target", "test-timing.txt");
+
+    private final Map<String, Long> classStarts = new ConcurrentHashMap<>();
+    private final Map<String, Long> classDurations = new ConcurrentHashMap<>();
+    private final Map<String, String> classThreads = new ConcurrentHashMap<>();
+    private final AtomicInteger tests = new AtomicInteger();
+    private long runStart;
+
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+        runStart = System.nanoTime();
+    }
+
+    @Override
+    public void executionStarted(TestIdentifier testIdentifier) {
+        if (isClass(testIdentifier)) {
+            classStarts.put(testIdentifier.getUniqueId(), System.nanoTime());
+            classThreads.put(testIdentifier.getUniqueId(), Thread.currentThread().getName());
+        }
+    }
+
+    @Override
+    public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+        if (testIdentifier.isTest()) {
+            tests.incrementAndGet();
+        }
+        Long start = classStarts.remove(testIdentifier.getUniqueId());
+        if (start != null) {
+            classDurations.put(testIdentifier.getDisplayName(), System.nanoTime() - start);
+            classThreads.put(testIdentifier.getDisplayName(), classThreads.remove(testIdentifier.getUniqueId()));
+        }
+    }
+
+    @Override
+    public void testPlanExecutionFinished(TestPlan testPlan) {
+        if (classDurations.isEmpty()) {
+            return;
+        }
+        long wallClock = System.nanoTime() - runStart;
+        long serial = classDurations.values().stream().mapToLong(Long::longValue).sum();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Test classes:          %d (%d tests)%n", classDurations.size(), tests.get()));
+        report.append(String.format("Available processors:  %d%n", Runtime.getRuntime().availableProcessors()));
+        report.append(String.format("Wall-clock time:       %.1f s%n", wallClock / 1e9));
+        report.append(String.format("Sum of class times:    %.1f s%n", serial / 1e9));
+        report.append(String.format("Average concurrency:   %.2f%n%n", (double) serial / wallClock));
+        classDurations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .forEach(entry -> report.append(String.format("%8.1f s  %-40s %s%n", entry.getValue() / 1e9,
+                        entry.getKey(), classThreads.get(entry.getKey()))));
+
+        try {
+            Files.createDirectories(REPORT.getParent());
+            Files.writeString(REPORT, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isClass(TestIdentifier testIdentifier) {
+        return testIdentifier.getSource().filter(ClassSource.class::isInstance).isPresent();
+    }
+}
@@ -0,0 +1,91 @@
+package com.pluralsight.coffeeservice.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.web.CoffeeJsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares writing a list of coffees with {@link CoffeeJsonWriter} and with Jackson. Run it from the IDE, or with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.pluralsight.coffeeservice.benchmark.CoffeeJsonWriterBenchmark</code>; the GC profiler reports
+ * the bytes allocated per operation as <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoffeeJsonWriterBenchmark {
+    @Param({"1", "50"})
+    private int coffeeCount;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CoffeeJsonWriter writer = new CoffeeJsonWriter(4);
+    private List<Coffee> coffees;
+    private OutputStream outputStream;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        coffees = new ArrayList<>();
+        for (int i = 0; i < coffeeCount; i++) {
+            Coffee coffee = new Coffee("Café \"Special\" Blend #" + i, i % 7 + 1);
+            coffee.setId(100_000L + i);
+            coffees.add(coffee);
+        }
+
+        // Consume the bytes without buffering them, like a socket would
+        outputStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        };
+    }
+
+    @Benchmark
+    public void jackson() throws IOException {
+        objectMapper.writeValue(outputStream, coffees);
+    }
+
+    @Benchmark
+    public void coffeeJsonWriter() throws IOException {
+        writer.writeArray(coffees.iterator(), outputStream);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CoffeeJsonWriterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+}
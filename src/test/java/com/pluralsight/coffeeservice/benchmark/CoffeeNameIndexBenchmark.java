@@ -0,0 +1,81 @@
+package com.pluralsight.coffeeservice.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.search.CoffeeNameIndex;
+import com.pluralsight.coffeeservice.search.CoffeeSuggestion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures autocomplete lookups in a {@link CoffeeNameIndex} of a million generated names: a short prefix with many
+ * matches, a longer prefix, and a misspelled query that only matches after correcting a typo. Run it like
+ * {@link CoffeeJsonWriterBenchmark}; the index needs about 1 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CoffeeNameIndexBenchmark {
+    private static final String[] ROASTS = {"Light", "Medium", "Dark", "French", "Italian", "Blonde", "Decaf",
+            "Organic"};
+    private static final String[] DRINKS = {"Espresso", "Latte", "Cappuccino", "Mocha", "Americano", "Macchiato",
+            "Cortado", "Flat White", "Ristretto", "Cold Brew", "Affogato", "Lungo"};
+    private static final String[] ORIGINS = {"Colombia", "Ethiopia", "Kenya", "Sumatra", "Guatemala", "Brazil",
+            "Costa Rica", "Yemen", "Panama", "Rwanda"};
+
+    @Param({"1000000"})
+    private int nameCount;
+
+    private final CoffeeNameIndex index = new CoffeeNameIndex();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < nameCount; i++) {
+            Coffee coffee = new Coffee(DRINKS[i % DRINKS.length] + " " + ROASTS[i / DRINKS.length % ROASTS.length]
+                    + " " + ORIGINS[i / 7 % ORIGINS.length] + " " + i, 1);
+            coffee.setId((long) i);
+            index.put(coffee);
+        }
+        System.out.println(index.getStats());
+    }
+
+    @Benchmark
+    public List<CoffeeSuggestion> shortPrefix() {
+        return index.suggest("la", 10);
+    }
+
+    @Benchmark
+    public List<CoffeeSuggestion> longPrefix() {
+        return index.suggest("cortado dark kenya 12", 10);
+    }
+
+    @Benchmark
+    public List<CoffeeSuggestion> misspelled() {
+        return index.suggest("capuccino blonde", 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CoffeeNameIndexBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.pluralsight.coffeeservice.benchmark;
+
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.pluralsight.coffeeservice.HotKeyProperties;
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead that the {@link HotKeySketch} adds to every coffee read: one call to
+ * {@link HotKeySketch#record(long)}, for reads of a million coffees. With the <code>skewed</code> workload, a third of
+ * the reads go to the hottest 10% of the coffees and few reads go to any one coffee; with the <code>hot</code>
+ * workload, half of the reads go to ten coffees, which stay tracked as heavy hitters. Run it like
+ * {@link CoffeeJsonWriterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotKeySketchBenchmark {
+    private static final int READS = 1 << 20;
+
+    @Param({"1000000"})
+    private int coffeeCount;
+
+    @Param({"skewed", "hot"})
+    private String workload;
+
+    private HotKeySketch sketch;
+    private final long[] ids = new long[READS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sketch = new HotKeySketch(new HotKeyProperties(), Clock.systemUTC(), null);
+
+        // Squaring a uniform sample sends about a third of the reads to the hottest 10% of the coffees
+        Random random = new Random(42);
+        for (int i = 0; i < READS; i++) {
+            double sample = random.nextDouble();
+            ids[i] = workload.equals("hot") && random.nextBoolean()
+                    ? random.nextInt(10)
+                    : (long) (sample * sample * coffeeCount);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        sketch.record(ids[next++ & (READS - 1)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HotKeySketchBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
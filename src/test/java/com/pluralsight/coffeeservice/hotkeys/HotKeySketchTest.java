@@ -0,0 +1,162 @@
+package com.pluralsight.coffeeservice.hotkeys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.pluralsight.coffeeservice.HotKeyProperties;
+import com.pluralsight.coffeeservice.hotkeys.HotKeySketch.HotKeyStats;
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+
+import org.junit.jupiter.api.Test;
+
+public class HotKeySketchTest {
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testFindsHeavyHittersAmongBackgroundReads() {
+        HotKeySketch sketch = new HotKeySketch(properties(4, 256, 3), clock, null);
+
+        // Read 10,000 coffees once each in random order, interleaved with many reads of three hot coffees
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.record(1_000 + random.nextInt(10_000));
+            if (i % 10 == 0) {
+                sketch.record(1);
+            }
+            if (i % 20 == 0) {
+                sketch.record(2);
+            }
+            if (i % 40 == 0) {
+                sketch.record(3);
+            }
+        }
+
+        // Validate that the three hot coffees are reported, hottest first, and never undercounted
+        List<HotKeyStats> topK = sketch.topK();
+        assertEquals(List.of(1L, 2L, 3L), topK.stream().map(HotKeyStats::id).toList());
+        assertTrue(topK.get(0).estimatedCount() >= 1_000);
+        assertTrue(topK.get(1).estimatedCount() >= 500);
+        assertTrue(topK.get(2).estimatedCount() >= 250);
+    }
+
+    @Test
+    void testDecayHalvesCountsAndReportsRates() {
+        HotKeySketch sketch = new HotKeySketch(properties(4, 1024, 5), clock, null);
+        for (int i = 0; i < 600; i++) {
+            sketch.record(7);
+        }
+        assertEquals(600, sketch.estimate(7));
+
+        // After one minute the counts are halved, and the 600 reads are reported as 10 per second
+        clock.advance(Duration.ofSeconds(60));
+        sketch.decay();
+        assertEquals(300, sketch.estimate(7));
+        HotKeyStats stats = sketch.topK().get(0);
+        assertEquals(300, stats.estimatedCount());
+        assertEquals(10.0, stats.ratePerSecond(), 0.001);
+
+        // Coffees that are no longer read decay away and are dropped
+        for (int i = 0; i < 10; i++) {
+            clock.advance(Duration.ofSeconds(60));
+            sketch.decay();
+        }
+        assertEquals(0, sketch.estimate(7));
+        assertTrue(sketch.topK().isEmpty());
+    }
+
+    @Test
+    void testPinsHottestCoffeesInCache() {
+        HotKeyProperties properties = properties(4, 1024, 5);
+        properties.setPinnedEntries(1);
+        LastKnownGoodCache cache = new LastKnownGoodCache(2);
+        HotKeySketch sketch = new HotKeySketch(properties, clock, cache);
+
+        // Make coffee 1 the hottest and pin it
+        for (int i = 0; i < 100; i++) {
+            sketch.record(1);
+        }
+        sketch.record(2);
+        sketch.decay();
+        assertEquals(Set.of(1L), sketch.getPinned());
+
+        // Validate that the pinned coffee survives although it is the least recently used when the cache overflows
+        cache.put(coffee(1L));
+        cache.put(coffee(2L));
+        cache.put(coffee(3L));
+        assertTrue(cache.get(1L).isPresent());
+        assertTrue(cache.get(2L).isEmpty());
+        assertTrue(cache.get(3L).isPresent());
+    }
+
+    @Test
+    void testPinnedCoffeesAreCappedAtCacheSize() {
+        HotKeyProperties properties = properties(4, 1024, 5);
+        properties.setPinnedEntries(5);
+        LastKnownGoodCache cache = new LastKnownGoodCache(2);
+        HotKeySketch sketch = new HotKeySketch(properties, clock, cache);
+
+        // Make five coffees hot, coffee 1 the hottest, and pin them
+        for (long id = 1; id <= 5; id++) {
+            for (int i = 0; i < 100 - id; i++) {
+                sketch.record(id);
+            }
+        }
+        sketch.decay();
+
+        // Validate that only as many coffees as the cache holds are pinned, and that the cache keeps its size
+        assertEquals(Set.of(1L, 2L), sketch.getPinned());
+        for (long id = 1; id <= 5; id++) {
+            cache.put(coffee(id));
+        }
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(1L).isPresent());
+        assertTrue(cache.get(2L).isPresent());
+    }
+
+    private static HotKeyProperties properties(int depth, int width, int topK) {
+        HotKeyProperties properties = new HotKeyProperties();
+        properties.setDepth(depth);
+        properties.setWidth(width);
+        properties.setTopK(topK);
+        return properties;
+    }
+
+    private static Coffee coffee(Long id) {
+        Coffee coffee = new Coffee("Coffee " + id, 1);
+        coffee.setId(id);
+        return coffee;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -13,28 +13,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.pluralsight.coffeeservice.ApplicationContextTest;
 import com.pluralsight.coffeeservice.model.Coffee;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestEntityManager;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import jakarta.transaction.Transactional;
 
-@SpringBootTest
-@AutoConfigureMockMvc
-@AutoConfigureTestEntityManager
+@ApplicationContextTest
 @Transactional
-@ActiveProfiles("test")
 public class CoffeeIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
@@ -123,6 +117,23 @@ public class CoffeeIntegrationTest {
                 .andExpect(jsonPath("$[0].name").value("Coffee 1"));
     }
 
+    @Test
+    public void testGetCoffeesById() throws Exception {
+        // Invoke GET /coffees?ids={thirdId},{missingId},{firstId}
+        Long missingId = coffeeIds.getFirst() + 3;
+        mockMvc.perform(get("/coffees")
+                        .param("ids", coffeeIds.get(2).toString(), missingId.toString(), coffeeIds.getFirst().toString()))
+                // Validate that we get a 200 OK HTTP Response
+                .andExpect(status().isOk())
+
+                // Validate that the coffees are returned in the requested order
+                .andExpect(jsonPath("$.coffees.length()").value(2))
+                .andExpect(jsonPath("$.coffees[0].name").value("Coffee 3"))
+                .andExpect(jsonPath("$.coffees[1].name").value("Coffee 1"))
+                .andExpect(jsonPath("$.etags." + coffeeIds.getFirst()).value("\"1\""))
+                .andExpect(jsonPath("$.notFound[0]").value(missingId));
+    }
+
     @Test
     public void testCreateCoffee() throws Exception {
         mockMvc.perform(post("/coffee")
@@ -210,10 +221,54 @@ public class CoffeeIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testDeleteCoffeeWithIfMatch() throws Exception {
+        Long firstId = coffeeIds.getFirst();
+
+        // Execute a DELETE with a mismatched version number: 5
+        mockMvc.perform(delete("/coffee/{id}", firstId).header(HttpHeaders.IF_MATCH, 5))
+                // Validate that we get a 409 Conflict HTTP Response and the coffee still exists
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/coffee/{id}", firstId))
+                .andExpect(status().isOk());
+
+        // Execute a DELETE with a matching version number: 1
+        mockMvc.perform(delete("/coffee/{id}", firstId).header(HttpHeaders.IF_MATCH, 1))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/coffee/{id}", firstId))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testDeleteCoffeeNotFound() throws Exception {
         // Execute our DELETE request
         mockMvc.perform(delete("/coffee/{id}", coffeeIds.getFirst() + 3))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void testHotKeysEndpoint() throws Exception {
+        // Read the second coffee three times and the first one once; earlier tests' reads were reset
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/coffee/{id}", coffeeIds.get(1))).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/coffee/{id}", coffeeIds.getFirst())).andExpect(status().isOk());
+
+        // Update the first coffee; the lookup done by the update is not a read
+        mockMvc.perform(put("/coffee/{id}", coffeeIds.getFirst())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, 1)
+                        .content(String.format("{\"id\": %d,  \"name\":  \"Updated Coffee 1\"}",
+                                coffeeIds.getFirst())))
+                .andExpect(status().isOk());
+
+        // Validate that the actuator reports the second coffee as the hottest, each read counted once
+        mockMvc.perform(get("/actuator/hotkeys"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topK[0].id").value(coffeeIds.get(1)))
+                .andExpect(jsonPath("$.topK[0].estimatedCount").value(3))
+                .andExpect(jsonPath("$.topK[1].id").value(coffeeIds.getFirst()))
+                .andExpect(jsonPath("$.topK[1].estimatedCount").value(1))
+                .andExpect(jsonPath("$.sketch.counterBytes").value(4 * 4096 * 8));
+    }
 }
@@ -0,0 +1,143 @@
+package com.pluralsight.coffeeservice.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Validates the SQL that patches emit. Unlike CoffeeIntegrationTest this test is not transactional: every request
+ * commits, and so flushes, its own transaction, exactly as it would in production.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.pluralsight.coffeeservice.integration.SqlRecorder",
+        "spring.jpa.show-sql=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(scripts = "/reset-coffees.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class CoffeePatchIntegrationTest {
+    private static final MediaType MERGE_PATCH_JSON = MediaType.parseMediaType("application/merge-patch+json");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CoffeeRepository coffeeRepository;
+
+    /**
+     * Maintains a list of the generated IDs for each coffee we preload in the database
+     */
+    private final List<Long> coffeeIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Load three coffees into the database, each save commits its own transaction
+        for (int i = 1; i <= 3; i++) {
+            coffeeIds.add(coffeeRepository.save(new Coffee("Coffee " + i, 1)).getId());
+        }
+        SqlRecorder.clear();
+    }
+
+    @Test
+    void testPatchUpdatesOnlyChangedColumns() throws Exception {
+        Long id = coffeeIds.getFirst();
+
+        mockMvc.perform(patch("/coffee/{id}", id)
+                        .contentType(MERGE_PATCH_JSON)
+                        .header(HttpHeaders.IF_MATCH, 1)
+                        .content("{\"name\": \"Patched Coffee\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.name").value("Patched Coffee"))
+                .andExpect(jsonPath("$.version").value(2));
+
+        // Validate that a single UPDATE set the name and the version, and left the other columns alone
+        assertEquals(List.of("update coffee set name=?,version=? where id=?"), SqlRecorder.statements("update"));
+        assertEquals("Patched Coffee", coffeeRepository.findById(id).orElseThrow().getName());
+    }
+
+    @Test
+    void testPatchThatChangesNothingIsNotWritten() throws Exception {
+        mockMvc.perform(patch("/coffee/{id}", coffeeIds.getFirst())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, 1)
+                        .content("{\"name\": \"Coffee 1\"}"))
+                .andExpect(status().isOk())
+
+                // Validate that the version was not bumped
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        assertTrue(SqlRecorder.statements("update").isEmpty());
+    }
+
+    @Test
+    void testPatchWithStaleVersionIsRejected() throws Exception {
+        mockMvc.perform(patch("/coffee/{id}", coffeeIds.getFirst())
+                        .contentType(MERGE_PATCH_JSON)
+                        .header(HttpHeaders.IF_MATCH, 7)
+                        .content("{\"name\": \"Patched Coffee\"}"))
+                .andExpect(status().isConflict());
+
+        assertTrue(SqlRecorder.statements("update").isEmpty());
+    }
+
+    @Test
+    void testBatchedPatchWritesOnlyChangedCoffees() throws Exception {
+        Long fourthId = coffeeRepository.save(new Coffee("Coffee 4", 1)).getId();
+        SqlRecorder.clear();
+
+        // Rename two coffees, leave one unchanged, and patch one with a stale version and one that does not exist
+        String body = String.format("""
+                [
+                    {"id": %d, "version": 1, "patch": {"name": "Patched Coffee 1"}},
+                    {"id": %d, "version": 1, "patch": {"name": "Patched Coffee 2"}},
+                    {"id": %d, "version": 1, "patch": {"name": "Coffee 3"}},
+                    {"id": %d, "version": 4, "patch": {"name": "Stale"}},
+                    {"id": -1, "version": 1, "patch": {"name": "Missing"}}
+                ]""", coffeeIds.get(0), coffeeIds.get(1), coffeeIds.get(2), fourthId);
+
+        mockMvc.perform(patch("/coffees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coffees.length()").value(3))
+                .andExpect(jsonPath("$.coffees[0].name").value("Patched Coffee 1"))
+                .andExpect(jsonPath("$.etags." + coffeeIds.get(0)).value("\"2\""))
+                .andExpect(jsonPath("$.etags." + coffeeIds.get(1)).value("\"2\""))
+
+                // The unchanged coffee kept its version
+                .andExpect(jsonPath("$.etags." + coffeeIds.get(2)).value("\"1\""))
+                .andExpect(jsonPath("$.conflicts[0]").value(fourthId))
+                .andExpect(jsonPath("$.notFound[0]").value(-1L));
+
+        // Validate that the coffees were read with one query, and only the two renamed coffees were written
+        assertEquals(1, SqlRecorder.statements("select").size());
+        assertEquals(List.of(
+                        "update coffee set name=?,version=? where id=?",
+                        "update coffee set name=?,version=? where id=?"),
+                SqlRecorder.statements("update"));
+        assertEquals("Patched Coffee 2", coffeeRepository.findById(coffeeIds.get(1)).orElseThrow().getName());
+        assertEquals("Coffee 4", coffeeRepository.findById(fourthId).orElseThrow().getName());
+    }
+}
@@ -0,0 +1,35 @@
+package com.pluralsight.coffeeservice.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL that Hibernate generates on the current thread, so that tests can assert the statements a request
+ * sent to the database. Install it with <code>spring.jpa.properties.hibernate.session_factory.statement_inspector</code>.
+ */
+public class SqlRecorder implements StatementInspector {
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * Returns the recorded statements of the specified kind, such as "update", in lower case with whitespace
+     * collapsed
+     */
+    public static List<String> statements(String kind) {
+        return STATEMENTS.get().stream()
+                .map(sql -> sql.replaceAll("\\s+", " ").trim().toLowerCase())
+                .filter(sql -> sql.startsWith(kind))
+                .toList();
+    }
+}
@@ -0,0 +1,73 @@
+package com.pluralsight.coffeeservice.load;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Drives the whole application, running on a random port against the embedded H2 database, with a mix of requests
+ * at a fixed arrival rate and fails if the latency or error thresholds are violated. Excluded from the default build;
+ * run it with <code>mvn test -Pload-test</code>. The workload is configured with system properties:
+ * <ul>
+ *     <li><code>load.rate</code>: requests per second (default 100)</li>
+ *     <li><code>load.duration</code>: ISO-8601 duration of the measured run (default PT30S)</li>
+ *     <li><code>load.warmup</code>: ISO-8601 duration of an unmeasured run beforehand (default PT10S)</li>
+ *     <li><code>load.mix</code>: operation weights (default get=50,list=10,post=15,put=15,delete=10)</li>
+ *     <li><code>load.seed-coffees</code>: coffees created before the run (default 100)</li>
+ *     <li><code>load.max-p99-ms</code>, <code>load.max-p999-ms</code>, <code>load.max-error-rate</code>:
+ *     thresholds (default 250, 1000 and 0.001)</li>
+ * </ul>
+ * The report is printed and written to <code>target/load-test-report.txt</code>.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.format_sql=false"})
+@ActiveProfiles("test")
+public class CoffeeLoadTest {
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void testMixedWorkloadMeetsThresholds() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+        LoadMix mix = LoadMix.parse(System.getProperty("load.mix", "get=50,list=10,post=15,put=15,delete=10"));
+        int seedCoffees = Integer.parseInt(System.getProperty("load.seed-coffees", "100"));
+        double maxP99Millis = Double.parseDouble(System.getProperty("load.max-p99-ms", "250"));
+        double maxP999Millis = Double.parseDouble(System.getProperty("load.max-p999-ms", "1000"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.001"));
+
+        try (HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build()) {
+            CoffeeWorkload workload = new CoffeeWorkload(httpClient, "http://localhost:" + port);
+            workload.seed(seedCoffees);
+
+            // Let the JIT and connection pool settle before measuring
+            if (!warmup.isZero()) {
+                new OpenModelLoadGenerator(workload, mix, 1).run(rate, warmup);
+            }
+
+            LoadReport report = new OpenModelLoadGenerator(workload, mix, 2).run(rate, duration);
+            System.out.println("Load test mix: " + mix);
+            System.out.print(report);
+            Files.writeString(Path.of("target", "load-test-report.txt"), "Load test mix: " + mix + "\n" + report);
+
+            List<String> violations = report.violations(maxP99Millis, maxP999Millis, maxErrorRate);
+            assertTrue(violations.isEmpty(), "Load test thresholds violated: " + violations);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.pluralsight.coffeeservice.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues coffee service requests over HTTP and keeps track of the coffees that exist and their latest known
+ * versions, so that PUT requests can send a plausible If-Match header and GET, PUT and DELETE target real IDs.
+ */
+public class CoffeeWorkload {
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final AtomicLong nameSequence = new AtomicLong();
+
+    /**
+     * The IDs of the coffees we believe to exist, and their latest known versions, guarded by <code>this</code>
+     */
+    private final List<Long> ids = new ArrayList<>();
+    private final Map<Long, Integer> versions = new HashMap<>();
+
+    public CoffeeWorkload(HttpClient httpClient, String baseUrl) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Creates the specified number of coffees so that the test does not start against an empty table.
+     */
+    public void seed(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            int status = post();
+            if (status != 201) {
+                throw new IllegalStateException("Failed to seed coffee, status: " + status);
+            }
+        }
+    }
+
+    /**
+     * Executes the operation and returns the HTTP status, or -1 if the request failed without a response.
+     */
+    public int execute(LoadMix.Operation operation) {
+        try {
+            return switch (operation) {
+                case GET -> get();
+                case LIST -> send(request("/coffees").GET().build()).statusCode();
+                case POST -> post();
+                case PUT -> put();
+                case DELETE -> delete();
+            };
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private int get() throws IOException, InterruptedException {
+        Long id = randomId();
+        if (id == null) {
+            return post();
+        }
+        return send(request("/coffee/" + id).GET().build()).statusCode();
+    }
+
+    private int post() throws IOException, InterruptedException {
+        String body = "{\"name\": \"Load Coffee " + nameSequence.incrementAndGet() + "\"}";
+        HttpResponse<String> response = send(request("/coffee")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+        if (response.statusCode() == 201) {
+            String location = response.headers().firstValue("Location").orElseThrow();
+            remember(Long.parseLong(location.substring(location.lastIndexOf('/') + 1)), etag(response));
+        }
+        return response.statusCode();
+    }
+
+    private int put() throws IOException, InterruptedException {
+        Long id = randomId();
+        if (id == null) {
+            return post();
+        }
+        String body = "{\"name\": \"Load Coffee " + nameSequence.incrementAndGet() + "\"}";
+        HttpResponse<String> response = send(request("/coffee/" + id)
+                .header("Content-Type", "application/json")
+                .header("If-Match", Integer.toString(version(id)))
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+        if (response.statusCode() == 200) {
+            remember(id, etag(response));
+        } else if (response.statusCode() == 404) {
+            forget(id);
+        }
+        return response.statusCode();
+    }
+
+    private int delete() throws IOException, InterruptedException {
+        Long id = randomId();
+        if (id == null) {
+            return post();
+        }
+        forget(id);
+        return send(request("/coffee/" + id).DELETE().build()).statusCode();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(10));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int etag(HttpResponse<?> response) {
+        return Integer.parseInt(response.headers().firstValue("ETag").orElseThrow().replace("\"", ""));
+    }
+
+    private synchronized Long randomId() {
+        return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private synchronized int version(Long id) {
+        return versions.getOrDefault(id, 1);
+    }
+
+    private synchronized void remember(Long id, int version) {
+        if (versions.put(id, version) == null) {
+            ids.add(id);
+        }
+    }
+
+    private synchronized void forget(Long id) {
+        if (versions.remove(id) != null) {
+            // Swap the last ID into the removed slot rather than shifting the rest of the list
+            int index = ids.indexOf(id);
+            ids.set(index, ids.getLast());
+            ids.removeLast();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pluralsight.coffeeservice.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The relative weights of the operations in a load test, parsed from a string such as
+ * <code>get=50,list=10,post=15,put=15,delete=10</code>. Operations that are not listed are never issued.
+ */
+public class LoadMix {
+    public enum Operation {
+        GET(Set.of(200, 404)),
+        LIST(Set.of(200)),
+        POST(Set.of(201)),
+        PUT(Set.of(200, 404, 409)),
+        DELETE(Set.of(200, 404));
+
+        /**
+         * The HTTP statuses that are a normal outcome of the operation. A 404 or 409 is expected when a concurrent
+         * DELETE or PUT got to the same coffee first.
+         */
+        private final Set<Integer> expectedStatuses;
+
+        Operation(Set<Integer> expectedStatuses) {
+            this.expectedStatuses = expectedStatuses;
+        }
+
+        public boolean isExpected(int status) {
+            return expectedStatuses.contains(status);
+        }
+    }
+
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+
+    public LoadMix(Map<Operation, Integer> weights) {
+        this.weights = new EnumMap<>(weights);
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The load mix must contain at least one operation: " + weights);
+        }
+    }
+
+    public static LoadMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid load mix entry: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return new LoadMix(weights);
+    }
+
+    /**
+     * Chooses the next operation with a probability proportional to its weight.
+     */
+    public Operation next(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
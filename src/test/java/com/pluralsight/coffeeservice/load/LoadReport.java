@@ -0,0 +1,96 @@
+package com.pluralsight.coffeeservice.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The outcome of a load test: throughput, latency percentiles and error rates, overall and per operation.
+ * Latencies are recorded in microseconds and reported in milliseconds.
+ */
+public class LoadReport {
+    private final double targetRate;
+    private final Duration elapsed;
+    private final Map<LoadMix.Operation, Histogram> latencies;
+    private final Map<LoadMix.Operation, AtomicLong> errors;
+    private final Histogram overall;
+
+    public LoadReport(double targetRate, Duration elapsed, Map<LoadMix.Operation, Histogram> latencies,
+                      Map<LoadMix.Operation, AtomicLong> errors) {
+        this.targetRate = targetRate;
+        this.elapsed = elapsed;
+        this.latencies = latencies;
+        this.errors = errors;
+        this.overall = new Histogram(3);
+        latencies.values().forEach(overall::add);
+    }
+
+    public long getRequestCount() {
+        return overall.getTotalCount();
+    }
+
+    public long getErrorCount() {
+        return errors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public double getErrorRate() {
+        return getRequestCount() == 0 ? 0 : (double) getErrorCount() / getRequestCount();
+    }
+
+    public double getThroughput() {
+        return getRequestCount() / (elapsed.toNanos() / 1_000_000_000.0);
+    }
+
+    public double getLatencyMillis(double percentile) {
+        return overall.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Returns a description of every threshold that this run violated, or an empty list if it met all of them.
+     */
+    public List<String> violations(double maxP99Millis, double maxP999Millis, double maxErrorRate) {
+        List<String> violations = new ArrayList<>();
+        if (getLatencyMillis(99) > maxP99Millis) {
+            violations.add(String.format("p99 latency %.2f ms exceeds %.2f ms", getLatencyMillis(99), maxP99Millis));
+        }
+        if (getLatencyMillis(99.9) > maxP999Millis) {
+            violations.add(String.format("p99.9 latency %.2f ms exceeds %.2f ms", getLatencyMillis(99.9), maxP999Millis));
+        }
+        if (getErrorRate() > maxErrorRate) {
+            violations.add(String.format("error rate %.4f exceeds %.4f", getErrorRate(), maxErrorRate));
+        }
+        return violations;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Target rate: %.1f req/s, achieved throughput: %.1f req/s over %.1f s%n",
+                targetRate, getThroughput(), elapsed.toMillis() / 1000.0));
+        report.append(String.format("%-8s %10s %8s %10s %10s %10s %10s%n",
+                "op", "requests", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        latencies.forEach((operation, histogram) -> {
+            if (histogram.getTotalCount() > 0) {
+                appendRow(report, operation.name(), histogram, errors.get(operation).get());
+            }
+        });
+        appendRow(report, "ALL", overall, getErrorCount());
+        report.append(String.format("Error rate: %.4f%n", getErrorRate()));
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, Histogram histogram, long errorCount) {
+        report.append(String.format("%-8s %10d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errorCount,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+    }
+}
@@ -0,0 +1,71 @@
+package com.pluralsight.coffeeservice.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Issues requests at a fixed arrival rate, independent of how quickly the service responds (an open workload
+ * model). Each request is dispatched on its own virtual thread at its scheduled start time, and its latency is
+ * measured from that scheduled time rather than from when it was actually sent. When the service stalls, the
+ * requests that queue up behind the stall are therefore charged for the time they waited, which avoids the
+ * coordinated omission of closed-loop load generators.
+ */
+public class OpenModelLoadGenerator {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final CoffeeWorkload workload;
+    private final LoadMix mix;
+    private final Random random;
+
+    public OpenModelLoadGenerator(CoffeeWorkload workload, LoadMix mix, long seed) {
+        this.workload = workload;
+        this.mix = mix;
+        this.random = new Random(seed);
+    }
+
+    public LoadReport run(double requestsPerSecond, Duration duration) throws InterruptedException {
+        Map<LoadMix.Operation, Histogram> latencies = new EnumMap<>(LoadMix.Operation.class);
+        Map<LoadMix.Operation, AtomicLong> errors = new EnumMap<>(LoadMix.Operation.class);
+        for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long intendedStart = start; intendedStart < end; intendedStart += intervalNanos) {
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                LoadMix.Operation operation = mix.next(random);
+                long scheduled = intendedStart;
+                executor.execute(() -> {
+                    int status = workload.execute(operation);
+                    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled);
+                    latencies.get(operation).recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+                    if (!operation.isExpected(status)) {
+                        errors.get(operation).incrementAndGet();
+                    }
+                });
+            }
+            // Closing the executor waits for the in-flight requests to complete
+        }
+
+        return new LoadReport(requestsPerSecond, Duration.ofNanos(System.nanoTime() - start), latencies, errors);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pluralsight.coffeeservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import com.pluralsight.coffeeservice.CircuitBreakerProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+public class DatabaseCircuitBreakerTest {
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DatabaseCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(0.5);
+        properties.setSlowCallDuration(Duration.ofMillis(500));
+        properties.setSlowCallRateThreshold(0.75);
+        properties.setOpenDuration(Duration.ofSeconds(10));
+        properties.setHalfOpenCalls(2);
+        circuitBreaker = new DatabaseCircuitBreaker(properties, clock, meterRegistry);
+    }
+
+    @Test
+    void testOpensWhenFailureRateReachesThreshold() {
+        succeed();
+        succeed();
+        fail();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        // The fourth call fills the window with a 50% failure rate
+        fail();
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Validate that calls are rejected without calling the database
+        DatabaseUnavailableException e = assertThrows(DatabaseUnavailableException.class,
+                () -> circuitBreaker.call(() -> {
+                    throw new AssertionError("The database must not be called while the breaker is open");
+                }));
+        assertEquals(Duration.ofSeconds(10), e.getRetryAfter());
+        assertEquals(2.0, meterRegistry.get("coffee.db.circuit.state").gauge().value());
+        assertEquals(1.0, meterRegistry.get("coffee.db.calls").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void testOpensWhenSlowCallRateReachesThreshold() {
+        succeed();
+        slow();
+        slow();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        slow();
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrialCalls() {
+        openBreaker();
+
+        // After the open duration the breaker lets trial calls through
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        succeed();
+        succeed();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.get("coffee.db.circuit.transitions")
+                .tag("from", "half_open").tag("to", "closed").counter().count());
+    }
+
+    @Test
+    void testReopensWhenTrialCallFails() {
+        openBreaker();
+        clock.advance(Duration.ofSeconds(10));
+        succeed();
+        fail();
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(Duration.ofSeconds(10), circuitBreaker.getRetryAfter());
+    }
+
+    @Test
+    void testNonDatabaseErrorsDoNotCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalArgumentException.class, () -> circuitBreaker.call(() -> {
+                throw new IllegalArgumentException();
+            }));
+        }
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testErrorsCausedByTheRequestDoNotCountAsFailures() {
+        // The database answered each of these calls, so they must not open the breaker
+        assertThrows(DataIntegrityViolationException.class, () -> circuitBreaker.call(() -> {
+            throw new DataIntegrityViolationException("Duplicate key");
+        }));
+        assertThrows(OptimisticLockingFailureException.class, () -> circuitBreaker.call(() -> {
+            throw new OptimisticLockingFailureException("Stale version");
+        }));
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> circuitBreaker.call(() -> {
+            throw new IncorrectResultSizeDataAccessException(1, 2);
+        }));
+        fail();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testTimeoutsAndTransactionFailuresCountAsFailures() {
+        succeed();
+        succeed();
+        assertThrows(QueryTimeoutException.class, () -> circuitBreaker.call(() -> {
+            throw new QueryTimeoutException("Query timed out");
+        }));
+        assertThrows(CannotCreateTransactionException.class, () -> circuitBreaker.call(() -> {
+            throw new CannotCreateTransactionException("Connection is not available");
+        }));
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void succeed() {
+        circuitBreaker.call(() -> "ok");
+    }
+
+    private void slow() {
+        circuitBreaker.call(() -> {
+            clock.advance(Duration.ofSeconds(1));
+            return "slow";
+        });
+    }
+
+    private void fail() {
+        assertThrows(DataAccessResourceFailureException.class, () -> circuitBreaker.call(() -> {
+            throw new DataAccessResourceFailureException("Connection refused");
+        }));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.pluralsight.coffeeservice.repository.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ShardedCoffeeRepositoryTest {
+    private static final int SHARD_COUNT = 3;
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+
+    private ShardedCoffeeRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // Create one embedded H2 database per shard
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource();
+            dataSource.setDriverClassName("org.h2.Driver");
+            dataSource.setUrl("jdbc:h2:mem:shard-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+            dataSource.setUsername("sa");
+            dataSource.setPassword("");
+            dataSources.add(dataSource);
+        }
+
+        // Use a small ID block and batch chunk size so that the tests cross block and chunk boundaries, and record the
+        // SQL sent to the shards
+        repository = new ShardedCoffeeRepository(dataSources.stream()
+                .<DataSource>map(SqlRecordingDataSource::new)
+                .toList(), 2, 2);
+        repository.initializeSchema();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dataSources.forEach(dataSource -> new JdbcTemplate(dataSource).execute("SHUTDOWN"));
+        dataSources.clear();
+        repository.close();
+    }
+
+    @Test
+    void testSaveGeneratesUniqueIdsOwnedByTheWritingShard() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            Coffee coffee = repository.save(new Coffee("Coffee " + i, 1));
+            assertTrue(ids.add(coffee.getId()), "Expected a globally unique ID");
+
+            // Validate that the row was written to the shard that owns its ID, and only to that shard
+            for (int shard = 0; shard < SHARD_COUNT; shard++) {
+                Long rows = new JdbcTemplate(dataSources.get(shard))
+                        .queryForObject("SELECT COUNT(*) FROM coffee WHERE id = ?", Long.class, coffee.getId());
+                assertEquals(shard == repository.shardFor(coffee.getId()) ? 1L : 0L, rows);
+            }
+        }
+
+        // Validate that the inserts were spread across every shard
+        assertEquals(SHARD_COUNT, ids.stream().map(repository::shardFor).distinct().count());
+        assertEquals(20, repository.count());
+    }
+
+    @Test
+    void testFindUpdateAndDeleteById() {
+        Coffee coffee = repository.save(new Coffee("Coffee 1", 1));
+
+        // Find the coffee by ID
+        Optional<Coffee> found = repository.findById(coffee.getId());
+        assertTrue(found.isPresent());
+        assertEquals("Coffee 1", found.get().getName());
+
+        // Update the coffee
+        found.get().setName("Updated Coffee 1");
+        found.get().setVersion(2);
+        repository.save(found.get());
+        Coffee updated = repository.findById(coffee.getId()).orElseThrow();
+        assertEquals("Updated Coffee 1", updated.getName());
+        assertEquals(2, updated.getVersion());
+
+        // Delete the coffee
+        assertEquals(1, repository.deleteById(coffee.getId()));
+        assertFalse(repository.findById(coffee.getId()).isPresent());
+        assertEquals(0, repository.deleteById(coffee.getId()));
+    }
+
+    @Test
+    void testSaveUpdatesOnlyNameAndVersion() {
+        List<Coffee> coffees = new ArrayList<>();
+        for (int i = 1; i <= SHARD_COUNT; i++) {
+            coffees.add(repository.save(new Coffee("Coffee " + i, 1)));
+        }
+
+        // Patch one coffee, then a batch with one coffee on each shard, as the PATCH endpoints do
+        SqlRecordingDataSource.clear();
+        coffees.getFirst().setName("Patched Coffee");
+        coffees.getFirst().setVersion(2);
+        repository.save(coffees.getFirst());
+        coffees.forEach(coffee -> coffee.setVersion(coffee.getVersion() + 1));
+        repository.saveAll(coffees);
+
+        // Validate that each coffee is written with a single UPDATE of the name and the version, the same statement
+        // that JPA sends for a patch, and that nothing is inserted
+        assertEquals(List.of(
+                        "update coffee set name = ?, version = ? where id = ?",
+                        "update coffee set name = ?, version = ? where id = ?",
+                        "update coffee set name = ?, version = ? where id = ?",
+                        "update coffee set name = ?, version = ? where id = ?"),
+                SqlRecordingDataSource.statements("update"));
+        assertTrue(SqlRecordingDataSource.statements("insert").isEmpty());
+        assertEquals("Patched Coffee", repository.findById(coffees.getFirst().getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void testSaveDoesNotRecreateADeletedCoffee() {
+        Coffee coffee = repository.save(new Coffee("Coffee 1", 1));
+        Coffee other = repository.save(new Coffee("Coffee 2", 1));
+
+        // Delete the coffee after it was read, as a concurrent DELETE between reading and saving it would
+        Coffee read = repository.findById(coffee.getId()).orElseThrow();
+        assertEquals(1, repository.deleteById(coffee.getId()));
+
+        // Validate that saving it again fails instead of inserting it
+        read.setName("Updated Coffee 1");
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(read));
+        assertFalse(repository.findById(coffee.getId()).isPresent());
+        assertEquals(1, repository.count());
+
+        // Validate the same for a batch, which also leaves the other coffees in it unchanged
+        other.setName("Updated Coffee 2");
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.saveAll(List.of(other, read)));
+        assertFalse(repository.findById(coffee.getId()).isPresent());
+        assertEquals("Coffee 2", repository.findById(other.getId()).orElseThrow().getName());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void testFindAllMergesShardsInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(repository.save(new Coffee("Coffee " + i, 1)).getId());
+        }
+        List<Long> sortedIds = ids.stream().sorted().toList();
+
+        // Validate the unpaged result
+        assertEquals(sortedIds, repository.findAll().stream().map(Coffee::getId).toList());
+
+        // Validate that pages are sliced from the merged result
+        Page<Coffee> page = repository.findAll(PageRequest.of(1, 4));
+        assertEquals(10, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(sortedIds.subList(4, 8), page.getContent().stream().map(Coffee::getId).toList());
+
+        Page<Coffee> lastPage = repository.findAll(PageRequest.of(2, 4));
+        assertEquals(sortedIds.subList(8, 10), lastPage.getContent().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void testFindByNameScattersAcrossShards() {
+        for (int i = 0; i < 6; i++) {
+            repository.save(new Coffee(i % 2 == 0 ? "Espresso" : "Latte", 1));
+        }
+
+        List<Coffee> espressos = repository.findByName("Espresso");
+        assertEquals(3, espressos.size());
+        assertTrue(espressos.stream().allMatch(coffee -> coffee.getName().equals("Espresso")));
+
+        Page<Coffee> page = repository.findByName("Latte", PageRequest.of(0, 2));
+        assertEquals(3, page.getTotalElements());
+        assertEquals(2, page.getContent().size());
+    }
+
+    @Test
+    void testFindAllById() {
+        Coffee coffee1 = repository.save(new Coffee("Coffee 1", 1));
+        Coffee coffee2 = repository.save(new Coffee("Coffee 2", 1));
+        repository.save(new Coffee("Coffee 3", 1));
+
+        List<Coffee> found = repository.findAllById(List.of(coffee1.getId(), coffee2.getId(), -1L));
+        assertEquals(Set.of(coffee1.getId(), coffee2.getId()),
+                found.stream().map(Coffee::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testFindAllByIdSplitsEachShardIntoChunks() {
+        // Save 20 coffees, about 7 per shard, so that every shard needs several chunks of 2 IDs
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(repository.save(new Coffee("Coffee " + i, 1)).getId());
+        }
+
+        // Validate that every chunk is queried, and that IDs owned by no coffee are ignored
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(-1L);
+        List<Coffee> found = repository.findAllById(requested);
+        assertEquals(20, found.size());
+        assertEquals(new HashSet<>(ids), found.stream().map(Coffee::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testSaveAllRollsBackEveryShardWhenAWriteFails() {
+        // Save one coffee on each shard
+        List<Coffee> coffees = new ArrayList<>();
+        for (int i = 1; i <= SHARD_COUNT; i++) {
+            coffees.add(repository.save(new Coffee("Coffee " + i, 1)));
+        }
+        assertEquals(SHARD_COUNT, coffees.stream()
+                .map(coffee -> repository.shardFor(coffee.getId()))
+                .distinct()
+                .count());
+
+        // Rename all of them, but give the last a name that is too long for its column
+        coffees.get(0).setName("Renamed 1");
+        coffees.get(1).setName("Renamed 2");
+        coffees.get(2).setName("x".repeat(300));
+        assertThrows(DataAccessException.class, () -> repository.saveAll(coffees));
+
+        // Validate that the renames on the other shards were rolled back
+        assertEquals("Coffee 1", repository.findById(coffees.get(0).getId()).orElseThrow().getName());
+        assertEquals("Coffee 2", repository.findById(coffees.get(1).getId()).orElseThrow().getName());
+
+        // A batch without invalid values is written to every shard
+        coffees.get(2).setName("Renamed 3");
+        repository.saveAll(coffees);
+        assertEquals(List.of("Renamed 1", "Renamed 2", "Renamed 3"), repository.findAll().stream()
+                .map(Coffee::getName)
+                .sorted()
+                .toList());
+    }
+
+    @Test
+    void testStatisticsQueriesMergeShards() {
+        // Save coffees with versions 1 to 6, two of each, spread across the shards
+        for (int i = 0; i < 12; i++) {
+            repository.save(new Coffee("Coffee " + i, i % 6 + 1));
+        }
+
+        Map<Integer, Long> counts = repository.countByVersion();
+        assertEquals(6, counts.size());
+        assertTrue(counts.values().stream().allMatch(count -> count == 2L));
+
+        // Validate that the highest versions are found across all shards, highest first
+        List<Coffee> mostUpdated = repository.findMostUpdated(3);
+        assertEquals(List.of(6, 6, 5), mostUpdated.stream().map(Coffee::getVersion).toList());
+    }
+}
@@ -0,0 +1,64 @@
+package com.pluralsight.coffeeservice.repository.shard;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Records the SQL that is prepared on the current thread through the wrapped data source, so that tests can assert
+ * the statements the sharded store sends to a shard. It plays the part of the integration tests' SqlRecorder, which
+ * only sees the SQL that Hibernate generates.
+ */
+public class SqlRecordingDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    public SqlRecordingDataSource(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return record(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return record(super.getConnection(username, password));
+    }
+
+    public static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * Returns the recorded statements of the specified kind, such as "update", in lower case with whitespace
+     * collapsed
+     */
+    public static List<String> statements(String kind) {
+        return STATEMENTS.get().stream()
+                .map(sql -> sql.replaceAll("\\s+", " ").trim().toLowerCase())
+                .filter(sql -> sql.startsWith(kind))
+                .toList();
+    }
+
+    private static Connection record(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        STATEMENTS.get().add((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package com.pluralsight.coffeeservice.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CoffeeNameIndexTest {
+    private CoffeeNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CoffeeNameIndex();
+        index.put(coffee(1L, "Latte"));
+        index.put(coffee(2L, "Latte Macchiato"));
+        index.put(coffee(3L, "Caffe Latte"));
+        index.put(coffee(4L, "Lavender Latte"));
+        index.put(coffee(5L, "Café Mocha"));
+        index.put(coffee(6L, "Espresso"));
+    }
+
+    @Test
+    void testSuggestRanksWholeNameMatchesFirst() {
+        // Whole-name matches, shortest first, then names with a later word that matches
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(index.suggest("latte", 10)));
+        assertEquals(List.of(1L, 2L), ids(index.suggest("latte", 2)));
+    }
+
+    @Test
+    void testSuggestIgnoresCaseAccentsAndExtraWhitespace() {
+        assertEquals(List.of(5L), ids(index.suggest("  CAFE  moc", 10)));
+        assertEquals(List.of(5L, 3L), ids(index.suggest("caf", 10)));
+    }
+
+    @Test
+    void testSuggestToleratesOneTypo() {
+        // Swapped, missing, extra and replaced characters
+        assertEquals(List.of(6L), ids(index.suggest("epsresso", 10)));
+        assertEquals(List.of(6L), ids(index.suggest("espreso", 10)));
+        assertEquals(List.of(6L), ids(index.suggest("expresso", 10)));
+        assertEquals(List.of(6L), ids(index.suggest("esprewso", 10)));
+
+        // Validate that corrected matches are flagged and ranked after exact ones
+        List<CoffeeSuggestion> suggestions = index.suggest("mocja", 10);
+        assertEquals(List.of(5L), ids(suggestions));
+        assertTrue(suggestions.getFirst().isCorrected());
+        assertFalse(index.suggest("mocha", 10).getFirst().isCorrected());
+    }
+
+    @Test
+    void testShortQueriesAreNotCorrected() {
+        assertTrue(index.suggest("xs", 10).isEmpty());
+        assertTrue(index.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void testPutReplacesAndRemoveDeletes() {
+        // Rename the espresso
+        index.put(coffee(6L, "Ristretto"));
+        assertTrue(index.suggest("espresso", 10).isEmpty());
+        assertEquals(List.of(6L), ids(index.suggest("rist", 10)));
+
+        index.remove(6L);
+        assertTrue(index.suggest("rist", 10).isEmpty());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testReadersNeverMissACoffeeBeingRenamed() throws InterruptedException {
+        // Keep renaming the espresso between two names that both start with "espresso"
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; !done.get(); i++) {
+                index.put(coffee(6L, i % 2 == 0 ? "Espresso Doppio" : "Espresso Lungo"));
+            }
+        });
+
+        // Validate that every concurrent lookup finds it exactly once
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(List.of(6L), ids(index.suggest("espresso", 10)));
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+
+        // Putting the same name again keeps the coffee indexed
+        index.put(coffee(6L, "Espresso Lungo"));
+        index.put(coffee(6L, "Espresso Lungo"));
+        assertEquals(List.of(6L), ids(index.suggest("lungo", 10)));
+    }
+
+    @Test
+    void testStatsReportMemoryPerEntry() {
+        CoffeeNameIndex.IndexStats stats = index.getStats();
+        assertEquals(6, stats.entries());
+
+        // One key per name plus one per later word
+        assertEquals(10, stats.keys());
+        assertEquals(stats.estimatedBytes() / 6, stats.estimatedBytesPerEntry());
+        assertTrue(stats.estimatedBytesPerEntry() > 0);
+    }
+
+    private static Coffee coffee(Long id, String name) {
+        Coffee coffee = new Coffee(name, 1);
+        coffee.setId(id);
+        return coffee;
+    }
+
+    private static List<Long> ids(List<CoffeeSuggestion> suggestions) {
+        return suggestions.stream().map(CoffeeSuggestion::getId).toList();
+    }
+}
@@ -0,0 +1,43 @@
+package com.pluralsight.coffeeservice.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.pluralsight.coffeeservice.CircuitBreakerConfig;
+import com.pluralsight.coffeeservice.InMemoryStateResetListener;
+import com.pluralsight.coffeeservice.search.CoffeeNameIndex;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
+
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * A JPA slice with the coffee service and its background jobs on an embedded database. The classes with this
+ * annotation share one application context, so, like {@link com.pluralsight.coffeeservice.ApplicationContextTest},
+ * they hold a common resource lock and run one after another, and reset the in-memory state of the service's
+ * singletons before each test with {@link InMemoryStateResetListener}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest
+@Import({CircuitBreakerConfig.class, CoffeeNameIndex.class, CoffeeStatistics.class, CoffeeService.class,
+        CoffeeTombstonePurger.class, CoffeeStatisticsReconciler.class})
+@TestPropertySource(properties = {
+        "coffee.delete.soft-delete=true",
+        "coffee.delete.purge-batch-size=2",
+        "coffee.stats.most-updated-size=2",
+        // Only run the background jobs when a test asks for it
+        "coffee.delete.purge-interval-ms=3600000",
+        "coffee.stats.reconcile-interval-ms=3600000"})
+@TestExecutionListeners(listeners = InMemoryStateResetListener.class,
+        mergeMode = TestExecutionListeners.MergeMode.MERGE_WITH_DEFAULTS)
+@ResourceLock("coffee-service-jpa-context")
+public @interface CoffeeServiceJpaTest {
+}
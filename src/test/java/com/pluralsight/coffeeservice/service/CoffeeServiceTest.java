@@ -1,25 +1,54 @@
 package com.pluralsight.coffeeservice.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import com.pluralsight.coffeeservice.CircuitBreakerProperties;
 import com.pluralsight.coffeeservice.model.Coffee;
 import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+import com.pluralsight.coffeeservice.repository.DatabaseCircuitBreaker;
+import com.pluralsight.coffeeservice.repository.DatabaseUnavailableException;
+import com.pluralsight.coffeeservice.search.CoffeeNameIndex;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
 public class CoffeeServiceTest {
     @Mock
     private CoffeeRepository repository;
 
+    @Spy
+    private DatabaseCircuitBreaker circuitBreaker = new DatabaseCircuitBreaker(circuitBreakerProperties(),
+            Clock.systemUTC(), null);
+
+    @Spy
+    private LastKnownGoodCache lastKnownGoodCache = new LastKnownGoodCache(100);
+
+    @Spy
+    private CoffeeNameIndex coffeeNameIndex = new CoffeeNameIndex();
+
+    @Spy
+    private CoffeeStatistics coffeeStatistics = new CoffeeStatistics();
+
     @InjectMocks
     private CoffeeService coffeeService;
 
@@ -37,4 +66,156 @@ public class CoffeeServiceTest {
         assertEquals("My Coffee", c.get().getName());
         assertEquals(1, c.get().getVersion());
     }
+
+    @Test
+    void testFindAllByIdChunksLargeIdLists() {
+        ReflectionTestUtils.setField(coffeeService, "batchChunkSize", 2);
+
+        // Request five IDs, one of them twice
+        List<Long> ids = List.of(1L, 2L, 3L, 2L, 4L, 5L);
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(new Coffee("Coffee 1")));
+        when(repository.findAllById(List.of(3L, 4L))).thenReturn(List.of(new Coffee("Coffee 3")));
+        when(repository.findAllById(List.of(5L))).thenReturn(List.of());
+
+        List<Coffee> coffees = coffeeService.findAllById(ids);
+        assertEquals(2, coffees.size());
+
+        // Validate that each distinct ID was sent to the database exactly once
+        verify(repository).findAllById(List.of(1L, 2L));
+        verify(repository).findAllById(List.of(3L, 4L));
+        verify(repository).findAllById(List.of(5L));
+    }
+
+    @Test
+    void testChunkSizeBelowOneIsRejected() {
+        // A chunk size of 0 would never advance through the IDs, and a negative one would fail on every lookup
+        ReflectionTestUtils.setField(coffeeService, "batchChunkSize", 0);
+        assertThrows(IllegalStateException.class, coffeeService::validateBatchChunkSize);
+        ReflectionTestUtils.setField(coffeeService, "batchChunkSize", -1);
+        assertThrows(IllegalStateException.class, coffeeService::validateBatchChunkSize);
+    }
+
+    @Test
+    void testFindByIdServesLastKnownGoodValueWhenDatabaseFails() {
+        Coffee coffee = new Coffee("My Coffee", 3);
+        coffee.setId(1L);
+
+        // The first read succeeds and is remembered
+        when(repository.findById(1L)).thenReturn(Optional.of(coffee));
+        coffeeService.findById(1L);
+
+        // The database then fails, so the remembered value is returned
+        when(repository.findById(1L)).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        Optional<Coffee> stale = coffeeService.findById(1L);
+        assertTrue(stale.isPresent());
+        assertEquals("My Coffee", stale.get().getName());
+        assertEquals(3, stale.get().getVersion());
+
+        // The failure opened the breaker, and a coffee that was never read cannot be served
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(DatabaseUnavailableException.class, () -> coffeeService.findById(2L));
+    }
+
+    @Test
+    void testFindByIdRethrowsErrorsThatAreNotAvailabilityFailures() {
+        Coffee coffee = new Coffee("My Coffee", 3);
+        coffee.setId(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(coffee));
+        coffeeService.findById(1L);
+
+        // The database answered with an error, so the cached value must not hide it
+        when(repository.findById(1L)).thenThrow(new IncorrectResultSizeDataAccessException(1, 2));
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> coffeeService.findById(1L));
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testFindAllByIdFailsWhenNotAllCoffeesAreCachedWhileCircuitBreakerIsOpen() {
+        Coffee coffee = new Coffee("My Coffee", 1);
+        coffee.setId(1L);
+
+        // Remember the first coffee, then open the breaker with failing reads
+        when(repository.findById(1L)).thenReturn(Optional.of(coffee));
+        coffeeService.findById(1L);
+        when(repository.findAll()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        for (int i = 0; i < 2; i++) {
+            assertThrows(DatabaseUnavailableException.class, () -> coffeeService.findAll());
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Validate that a partial cache hit fails rather than reporting the uncached coffee as missing
+        assertThrows(DatabaseUnavailableException.class, () -> coffeeService.findAllById(List.of(1L, 2L)));
+
+        // Validate that a full cache hit is served from the cache
+        assertEquals(List.of(1L), coffeeService.findAllById(List.of(1L, 1L)).stream().map(Coffee::getId).toList());
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void testWritesFailFastWhileCircuitBreakerIsOpen() {
+        // Open the breaker with failing reads
+        when(repository.findAll()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        for (int i = 0; i < 2; i++) {
+            assertThrows(DatabaseUnavailableException.class, () -> coffeeService.findAll());
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Validate that writes are rejected without calling the database
+        assertThrows(DatabaseUnavailableException.class, () -> coffeeService.create(new Coffee("New Coffee")));
+        assertThrows(DatabaseUnavailableException.class, () -> coffeeService.deleteById(1L, null));
+        verify(repository, never()).save(any());
+        verify(repository, never()).deleteCoffeeById(any());
+    }
+
+    @Test
+    void testWritesUpdateNameIndex() {
+        Coffee coffee = new Coffee("Caffe Latte");
+        coffee.setId(1L);
+        when(repository.save(any())).thenReturn(coffee);
+        when(repository.deleteCoffeeById(1L)).thenReturn(1);
+
+        // Validate that a created coffee can be suggested right away
+        coffeeService.create(coffee);
+        assertEquals(1L, coffeeService.suggest("lat", 10).getFirst().getId());
+
+        // Validate that a deleted coffee is no longer suggested
+        coffeeService.deleteById(1L, null);
+        assertTrue(coffeeService.suggest("lat", 10).isEmpty());
+    }
+
+    @Test
+    void testWritesUpdateStatistics() {
+        Coffee coffee = new Coffee("My Coffee");
+        coffee.setId(1L);
+        when(repository.save(any())).thenReturn(coffee);
+        when(repository.findById(1L)).thenAnswer(invocation -> Optional.of(copy(coffee)));
+        when(repository.deleteCoffeeById(1L)).thenReturn(1);
+
+        // Create the coffee, then read and update it like the controller does
+        coffeeService.create(coffee);
+        Coffee read = coffeeService.findById(1L).orElseThrow();
+        coffee.setVersion(read.getVersion() + 1);
+        coffeeService.save(coffee);
+
+        // The previous version was taken from the read, so the histogram moved the coffee to version 2
+        assertEquals(1, coffeeService.getStats().getCount());
+        assertEquals(Map.of(2, 1L), coffeeService.getStats().getVersionHistogram());
+
+        coffeeService.deleteById(1L, null);
+        assertEquals(0, coffeeService.getStats().getCount());
+        assertTrue(coffeeService.getStats().getVersionHistogram().isEmpty());
+    }
+
+    private static Coffee copy(Coffee coffee) {
+        Coffee copy = new Coffee(coffee.getName(), coffee.getVersion());
+        copy.setId(coffee.getId());
+        return copy;
+    }
+
+    private static CircuitBreakerProperties circuitBreakerProperties() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(2);
+        properties.setMinimumCalls(2);
+        return properties;
+    }
 }
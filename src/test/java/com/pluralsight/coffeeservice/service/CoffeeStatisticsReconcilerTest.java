@@ -0,0 +1,41 @@
+package com.pluralsight.coffeeservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+import com.pluralsight.coffeeservice.stats.CoffeeStatistics;
+import com.pluralsight.coffeeservice.stats.CoffeeStats;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@CoffeeServiceJpaTest
+public class CoffeeStatisticsReconcilerTest {
+    @Autowired
+    private CoffeeStatisticsReconciler reconciler;
+
+    @Autowired
+    private CoffeeStatistics coffeeStatistics;
+
+    @Autowired
+    private CoffeeRepository coffeeRepository;
+
+    @Test
+    void testReconcileReadsStatisticsFromDatabase() {
+        coffeeRepository.saveAndFlush(new Coffee("Coffee 1", 1));
+        coffeeRepository.saveAndFlush(new Coffee("Coffee 2", 1));
+        Long thirdId = coffeeRepository.saveAndFlush(new Coffee("Coffee 3", 4)).getId();
+        Long fourthId = coffeeRepository.saveAndFlush(new Coffee("Coffee 4", 2)).getId();
+
+        reconciler.reconcile();
+
+        CoffeeStats stats = coffeeStatistics.getStats();
+        assertEquals(4, stats.getCount());
+        assertEquals(Map.of(1, 2L, 2, 1L, 4, 1L), stats.getVersionHistogram());
+        assertEquals(List.of(thirdId, fourthId), stats.getMostUpdated().stream().map(Coffee::getId).toList());
+    }
+}
@@ -0,0 +1,124 @@
+package com.pluralsight.coffeeservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.ConfigurableTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@CoffeeServiceJpaTest
+public class CoffeeTombstonePurgerTest {
+    @Autowired
+    private CoffeeService coffeeService;
+
+    @Autowired
+    private CoffeeTombstonePurger purger;
+
+    @Autowired
+    private CoffeeRepository coffeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> coffeeIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            coffeeIds.add(coffeeRepository.saveAndFlush(new Coffee("Coffee " + i, 1)).getId());
+        }
+    }
+
+    @Test
+    void testSoftDeleteHidesCoffeeUntilPurged() {
+        // Soft delete the first coffee
+        Long firstId = coffeeIds.getFirst();
+        assertEquals(1, coffeeService.deleteById(firstId, null));
+
+        // Validate that the coffee is hidden but its row still exists
+        assertFalse(coffeeService.findById(firstId).isPresent());
+        assertEquals(4, coffeeService.findAll().size());
+        assertEquals(1, countRows(firstId));
+
+        // Deleting it again finds nothing to delete
+        assertEquals(0, coffeeService.deleteById(firstId, null));
+
+        // Purge the tombstone and validate that the row is gone
+        assertEquals(1, purger.purge());
+        assertEquals(0, countRows(firstId));
+    }
+
+    @Test
+    void testSoftDeleteHonoursExpectedVersion() {
+        Long firstId = coffeeIds.getFirst();
+        assertEquals(0, coffeeService.deleteById(firstId, 2));
+        assertTrue(coffeeService.findById(firstId).isPresent());
+
+        assertEquals(1, coffeeService.deleteById(firstId, 1));
+        assertFalse(coffeeService.findById(firstId).isPresent());
+    }
+
+    @Test
+    void testPurgeRemovesTombstonesInBatches() {
+        // Soft delete every coffee, more than fit in one purge batch
+        coffeeIds.forEach(id -> coffeeService.deleteById(id, null));
+        assertTrue(coffeeService.findAll().isEmpty());
+
+        assertEquals(5, purger.purge());
+        coffeeIds.forEach(id -> assertEquals(0, countRows(id)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql(scripts = "/reset-coffees.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testPurgeCommitsEachBatchSeparately() {
+        // Without a surrounding test transaction, the coffees of setUp() and their soft deletes are committed
+        coffeeIds.forEach(id -> coffeeService.deleteById(id, null));
+
+        // Count the read-write transactions that commit while purging
+        AtomicInteger commits = new AtomicInteger();
+        TransactionExecutionListener listener = new TransactionExecutionListener() {
+            @Override
+            public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+                if (!transaction.isReadOnly() && commitFailure == null) {
+                    commits.incrementAndGet();
+                }
+            }
+        };
+        ConfigurableTransactionManager configurable = (ConfigurableTransactionManager) transactionManager;
+        configurable.addListener(listener);
+        try {
+            assertEquals(5, purger.purge());
+        } finally {
+            configurable.getTransactionExecutionListeners().remove(listener);
+        }
+
+        // Validate that the five tombstones were purged in three batches of at most two, each committed on its own
+        assertEquals(3, commits.get());
+        coffeeIds.forEach(id -> assertEquals(0, countRows(id)));
+    }
+
+    private int countRows(Long id) {
+        return jdbcTemplate.queryForObject("select count(*) from coffee where id = ?", Integer.class, id);
+    }
+}
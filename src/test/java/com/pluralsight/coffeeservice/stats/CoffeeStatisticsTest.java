@@ -0,0 +1,127 @@
+package com.pluralsight.coffeeservice.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CoffeeStatisticsTest {
+    private final MutableClock clock = new MutableClock();
+    private final CoffeeStatistics statistics = new CoffeeStatistics(clock);
+
+    @Test
+    void testWritesUpdateCountAndVersionHistogram() {
+        // Create three coffees and update the first one twice
+        statistics.recordCreated(coffee(1L, 1));
+        statistics.recordCreated(coffee(2L, 1));
+        statistics.recordCreated(coffee(3L, 1));
+        statistics.recordUpdated(1, coffee(1L, 2));
+        statistics.recordUpdated(2, coffee(1L, 3));
+
+        // Delete the second one with its version known, and the third one without
+        statistics.recordDeleted(2L, 1);
+        statistics.recordDeleted(3L, null);
+
+        CoffeeStats stats = statistics.getStats();
+        assertEquals(1, stats.getCount());
+
+        // The unknown version of the third coffee stays in the histogram until the next reconciliation
+        assertEquals(Map.of(1, 1L, 3, 1L), stats.getVersionHistogram());
+        assertEquals(List.of(1L), stats.getMostUpdated().stream().map(Coffee::getId).toList());
+        assertNull(stats.getReconciledAt());
+    }
+
+    @Test
+    void testMostUpdatedIsBounded() {
+        ReflectionTestUtils.setField(statistics, "mostUpdatedSize", 2);
+        statistics.recordCreated(coffee(1L, 1));
+        statistics.recordUpdated(1, coffee(2L, 5));
+        statistics.recordUpdated(2, coffee(3L, 3));
+        statistics.recordUpdated(5, coffee(1L, 4));
+
+        // Validate that only the two highest versions are kept, highest first
+        List<Coffee> mostUpdated = statistics.getStats().getMostUpdated();
+        assertEquals(List.of(2L, 1L), mostUpdated.stream().map(Coffee::getId).toList());
+        assertEquals(List.of(5, 4), mostUpdated.stream().map(Coffee::getVersion).toList());
+    }
+
+    @Test
+    void testRatesAverageTheLastMinute() {
+        // Create 30 coffees in one second and update 6 in the next
+        for (long id = 1; id <= 30; id++) {
+            statistics.recordCreated(coffee(id, 1));
+        }
+        clock.advance(Duration.ofSeconds(1));
+        for (long id = 1; id <= 6; id++) {
+            statistics.recordUpdated(1, coffee(id, 2));
+        }
+
+        // The current second is not counted yet
+        Map<String, Double> rates = statistics.getStats().getRatesPerSecond();
+        assertEquals(0.5, rates.get("created"));
+        assertEquals(0.0, rates.get("updated"));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(0.1, statistics.getStats().getRatesPerSecond().get("updated"), 1e-9);
+
+        // A minute later the events have left the window
+        clock.advance(Duration.ofSeconds(60));
+        assertEquals(0.0, statistics.getStats().getRatesPerSecond().get("created"));
+        assertEquals(0.0, statistics.getStats().getRatesPerSecond().get("updated"));
+    }
+
+    @Test
+    void testReconcileReplacesCounts() {
+        statistics.recordCreated(coffee(1L, 1));
+        statistics.recordDeleted(2L, null);
+
+        statistics.reconcile(Map.of(1, 4L, 7, 1L), List.of(coffee(9L, 7), coffee(1L, 1)));
+
+        CoffeeStats stats = statistics.getStats();
+        assertEquals(5, stats.getCount());
+        assertEquals(Map.of(1, 4L, 7, 1L), stats.getVersionHistogram());
+        assertEquals(List.of(9L, 1L), stats.getMostUpdated().stream().map(Coffee::getId).toList());
+        assertNotNull(stats.getReconciledAt());
+    }
+
+    private static Coffee coffee(Long id, int version) {
+        Coffee coffee = new Coffee("Coffee " + id, version);
+        coffee.setId(id);
+        return coffee;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
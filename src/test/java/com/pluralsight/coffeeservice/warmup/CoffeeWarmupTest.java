@@ -0,0 +1,112 @@
+package com.pluralsight.coffeeservice.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.CoffeeRepository;
+import com.pluralsight.coffeeservice.service.LastKnownGoodCache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "coffee.warmup.enabled=true",
+        "coffee.warmup.requests=200",
+        "coffee.warmup.preload-count=5",
+        "coffee.warmup.mix.list=0",
+        "coffee.warmup.pool-connections=3",
+        "spring.jpa.show-sql=false"})
+@ActiveProfiles("test")
+public class CoffeeWarmupTest {
+    @Autowired
+    private CoffeeWarmup warmup;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private LastKnownGoodCache lastKnownGoodCache;
+
+    @Autowired
+    private ReadinessRecorder readinessRecorder;
+
+    @Test
+    void testReadinessFlipsOnlyAfterWarmupCompletes() {
+        // Validate that the service refused traffic while warming up, and accepted it only once warm-up completed
+        assertEquals(List.of(
+                        "REFUSING_TRAFFIC during PENDING",
+                        "ACCEPTING_TRAFFIC during COMPLETE"),
+                readinessRecorder.changes);
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+
+        // Validate that the coffees were preloaded and the workload was replayed
+        assertEquals(5, lastKnownGoodCache.size());
+        assertEquals(200, warmup.health().getDetails().get("completedRequests"));
+    }
+
+    @Test
+    void testMixWithoutWeightIsRejected() {
+        WarmupProperties properties = new WarmupProperties();
+        properties.setMix(Map.of("get", 0, "batch", 0, "list", 0));
+        CoffeeWarmup invalidWarmup = new CoffeeWarmup();
+        ReflectionTestUtils.setField(invalidWarmup, "properties", properties);
+
+        // Validate that a mix with no requests to replay fails the start-up instead of the replay
+        assertThrows(IllegalStateException.class, invalidWarmup::validateMix);
+    }
+
+    @TestConfiguration
+    static class WarmupTestConfig {
+        /**
+         * Runs before the warm-up so that it has coffees to preload
+         */
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        ApplicationRunner seedCoffees(CoffeeRepository coffeeRepository) {
+            return args -> {
+                for (int i = 1; i <= 10; i++) {
+                    coffeeRepository.save(new Coffee("Coffee " + i, 1));
+                }
+            };
+        }
+
+        @Bean
+        ReadinessRecorder readinessRecorder(CoffeeWarmup warmup) {
+            return new ReadinessRecorder(warmup);
+        }
+    }
+
+    /**
+     * Records each readiness change together with the warm-up phase at the time of the change
+     */
+    static class ReadinessRecorder {
+        private final CoffeeWarmup warmup;
+        private final List<String> changes = new ArrayList<>();
+
+        ReadinessRecorder(CoffeeWarmup warmup) {
+            this.warmup = warmup;
+        }
+
+        @EventListener
+        void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+            changes.add(event.getState() + " during " + warmup.getPhase());
+        }
+    }
+}
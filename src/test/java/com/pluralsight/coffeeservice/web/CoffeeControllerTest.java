@@ -1,10 +1,13 @@
 package com.pluralsight.coffeeservice.web;
 
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -12,16 +15,23 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.pluralsight.coffeeservice.model.Coffee;
+import com.pluralsight.coffeeservice.repository.DatabaseUnavailableException;
+import com.pluralsight.coffeeservice.search.CoffeeSuggestion;
 import com.pluralsight.coffeeservice.service.CoffeeService;
+import com.pluralsight.coffeeservice.service.StaleReads;
+import com.pluralsight.coffeeservice.stats.CoffeeStats;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -73,6 +83,50 @@ public class CoffeeControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testGetCoffeeByIdStale() throws Exception {
+        Coffee coffee = new Coffee("My Coffee", 1);
+        coffee.setId(1L);
+
+        // Setup our mock service to answer from its last known good values
+        when(coffeeService.findById(1L)).thenAnswer(invocation -> {
+            StaleReads.markStale();
+            return Optional.of(coffee);
+        });
+
+        // Validate that the response is marked as stale
+        mockMvc.perform(get("/coffee/{id}", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+                .andExpect(jsonPath("$.name").value("My Coffee"));
+    }
+
+    @Test
+    public void testCreateCoffeeDatabaseUnavailable() throws Exception {
+        // Setup our mock service to fail fast because the circuit breaker is open
+        when(coffeeService.create(any()))
+                .thenThrow(new DatabaseUnavailableException("open", Duration.ofMillis(2500)));
+
+        mockMvc.perform(post("/coffee")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":  \"Coffee 1\"}"))
+
+                // Validate that we get a 503 Service Unavailable HTTP Response
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+    }
+
+    @Test
+    public void testDatabaseUnavailableNeverAsksForAnImmediateRetry() throws Exception {
+        // The breaker is half-open and all trial calls are taken, so there is no wait left to report
+        when(coffeeService.findById(1L))
+                .thenThrow(new DatabaseUnavailableException("open", Duration.ZERO));
+
+        mockMvc.perform(get("/coffee/{id}", 1))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
     @Test
     public void testGetCoffees() throws Exception {
         // Create a list of 3 coffees
@@ -94,6 +148,70 @@ public class CoffeeControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Coffee 1"));
     }
 
+    @Test
+    public void testGetCoffeesById() throws Exception {
+        // Create two coffees, returned by the service in a different order than requested
+        Coffee coffee1 = new Coffee("Coffee 1", 1);
+        coffee1.setId(1L);
+        Coffee coffee3 = new Coffee("Coffee 3", 4);
+        coffee3.setId(3L);
+        when(coffeeService.findAllById(anyList())).thenReturn(List.of(coffee1, coffee3));
+
+        // Invoke GET /coffees?ids=3,2,1
+        mockMvc.perform(get("/coffees").param("ids", "3,2,1"))
+                // Validate that we get a 200 OK HTTP Response
+                .andExpect(status().isOk())
+
+                // Validate that the coffees are in the requested order
+                .andExpect(jsonPath("$.coffees.length()").value(2))
+                .andExpect(jsonPath("$.coffees[0].id").value(3L))
+                .andExpect(jsonPath("$.coffees[1].id").value(1L))
+
+                // Validate the per-coffee ETags and the missing IDs
+                .andExpect(jsonPath("$.etags.3").value("\"4\""))
+                .andExpect(jsonPath("$.etags.1").value("\"1\""))
+                .andExpect(jsonPath("$.notFound.length()").value(1))
+                .andExpect(jsonPath("$.notFound[0]").value(2L));
+    }
+
+    @Test
+    void testSuggestCoffees() throws Exception {
+        // Setup the mocked service to suggest two coffees, the second one after correcting a typo
+        when(coffeeService.suggest("latt", 10)).thenReturn(List.of(
+                new CoffeeSuggestion(1L, "Latte", false),
+                new CoffeeSuggestion(2L, "Lattte", true)));
+
+        mockMvc.perform(get("/coffees/suggest").param("q", "latt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].name").value("Latte"))
+                .andExpect(jsonPath("$[0].corrected").value(false))
+                .andExpect(jsonPath("$[1].corrected").value(true));
+    }
+
+    @Test
+    void testGetStats() throws Exception {
+        Coffee mostUpdated = new Coffee("Coffee 3", 4);
+        mostUpdated.setId(3L);
+        when(coffeeService.getStats()).thenReturn(new CoffeeStats(2,
+                Map.of("created", 0.5, "updated", 0.1, "deleted", 0.0),
+                Map.of(1, 1L, 4, 1L),
+                List.of(mostUpdated),
+                null));
+
+        mockMvc.perform(get("/coffees/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.ratesPerSecond.created").value(0.5))
+                .andExpect(jsonPath("$.versionHistogram.4").value(1))
+                .andExpect(jsonPath("$.mostUpdated[0].id").value(3L))
+                .andExpect(jsonPath("$.mostUpdated[0].version").value(4));
+
+        // Validate that the statistics never load the coffees
+        verify(coffeeService, never()).findAll();
+    }
+
     @Test
     public void testCreateCoffee() throws Exception {
         Coffee coffee = new Coffee("Coffee 1");
@@ -173,6 +291,25 @@ public class CoffeeControllerTest {
                 .andExpect(status().isConflict());
     }
 
+    @Test
+    public void testUpdateOfCoffeeDeletedWhileSaving() throws Exception {
+        Coffee mockCoffee = new Coffee("Coffee 1");
+        mockCoffee.setId(1L);
+        mockCoffee.setVersion(5);
+        when(coffeeService.findById(1L)).thenReturn(Optional.of(mockCoffee));
+
+        // Simulate the coffee being deleted after it was read but before it was saved
+        when(coffeeService.save(any())).thenThrow(new OptimisticLockingFailureException("Coffee 1 no longer exists"));
+
+        mockMvc.perform(put("/coffee/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, 5)
+                        .content("{\"id\": 1, \"name\":  \"Updated Coffee 1\"}"))
+
+                // Validate that we get a 409 Conflict HTTP Response
+                .andExpect(status().isConflict());
+    }
+
     @Test
     public void testUpdateNotFound() throws Exception {
         // Return the mock Coffee when the CoffeeService's findById(1L) is called
@@ -189,23 +326,92 @@ public class CoffeeControllerTest {
     }
 
     @Test
-    void testDeleteCoffeeSuccess() throws Exception {
-        // Setup mocked product
-        Coffee mockCoffee = new Coffee("Cold Coffee");
+    void testPatchCoffee() throws Exception {
+        // Create a mock coffee with a version set to 5
+        Coffee mockCoffee = new Coffee("Coffee 1");
+        mockCoffee.setId(1L);
+        mockCoffee.setVersion(5);
+        when(coffeeService.findById(1L)).thenReturn(Optional.of(mockCoffee));
+        when(coffeeService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
-        // Setup the mocked service
+        // Execute our PATCH request with a merge patch
+        mockMvc.perform(patch("/coffee/{id}", 1L)
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, 5)
+                        .content("{\"name\": \"Patched Coffee\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""))
+                .andExpect(jsonPath("$.name").value("Patched Coffee"))
+                .andExpect(jsonPath("$.version").value(6));
+    }
+
+    @Test
+    void testPatchCoffeeRejectsInvalidPatches() throws Exception {
+        Coffee mockCoffee = new Coffee("Coffee 1");
+        mockCoffee.setId(1L);
+        mockCoffee.setVersion(5);
         when(coffeeService.findById(1L)).thenReturn(Optional.of(mockCoffee));
-        doNothing().when(coffeeService).deleteById(1L);
+
+        // Changing a read-only property, adding an unknown property and patching with a non-object are all rejected
+        for (String patch : List.of("{\"id\": 2}", "{\"version\": 9}", "{\"origin\": \"Kenya\"}", "[]")) {
+            mockMvc.perform(patch("/coffee/{id}", 1L)
+                            .contentType("application/merge-patch+json")
+                            .header(HttpHeaders.IF_MATCH, 5)
+                            .content(patch))
+                    .andExpect(status().isBadRequest());
+        }
+
+        // A stale version is a conflict, as it is for PUT
+        mockMvc.perform(patch("/coffee/{id}", 1L)
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, 2)
+                        .content("{\"name\": \"Patched Coffee\"}"))
+                .andExpect(status().isConflict());
+
+        // Validate that nothing was written
+        verify(coffeeService, never()).save(any());
+    }
+
+    @Test
+    void testDeleteCoffeeSuccess() throws Exception {
+        // Setup the mocked service to delete one coffee
+        when(coffeeService.deleteById(1L, null)).thenReturn(1);
 
         // Execute our DELETE request
         mockMvc.perform(delete("/coffee/{id}", 1L))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testDeleteCoffeeWithMatchingVersion() throws Exception {
+        // Setup the mocked service to delete one coffee with version 5
+        when(coffeeService.deleteById(1L, 5)).thenReturn(1);
+
+        // Execute our DELETE request with a matching version: 5
+        mockMvc.perform(delete("/coffee/{id}", 1L).header(HttpHeaders.IF_MATCH, 5))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testDeleteCoffeeConflict() throws Exception {
+        // Create a mock coffee with a version set to 5
+        Coffee mockCoffee = new Coffee("Coffee 1");
+        mockCoffee.setId(1L);
+        mockCoffee.setVersion(5);
+
+        // Setup the mocked service to delete nothing because the version does not match
+        when(coffeeService.deleteById(1L, 2)).thenReturn(0);
+        when(coffeeService.findById(1L)).thenReturn(Optional.of(mockCoffee));
+
+        // Execute our DELETE request with a mismatched version number: 2
+        mockMvc.perform(delete("/coffee/{id}", 1L).header(HttpHeaders.IF_MATCH, 2))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testDeleteCoffeeNotFound() throws Exception {
-        // Setup the mocked service
-        when(coffeeService.findById(1L)).thenReturn(Optional.empty());
+        // Setup the mocked service to delete nothing
+        when(coffeeService.deleteById(1L, null)).thenReturn(0);
 
         // Execute our DELETE request
         mockMvc.perform(delete("/coffee/{id}", 1L))
@@ -0,0 +1,93 @@
+package com.pluralsight.coffeeservice.web;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pluralsight.coffeeservice.model.Coffee;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class CoffeeJsonWriterTest {
+    /**
+     * Configured the same way as the ObjectMapper that Spring Boot gives the Jackson message converter
+     */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final CoffeeJsonWriter writer = new CoffeeJsonWriter(2);
+
+    static List<String> names() {
+        // Every ASCII character, including the control characters, quotes and backslashes that must be escaped
+        StringBuilder ascii = new StringBuilder();
+        IntStream.range(0, 128).forEach(c -> ascii.append((char) c));
+
+        List<String> names = new ArrayList<>();
+        names.add("");
+        names.add("Espresso");
+        names.add(ascii.toString());
+        names.add("Café crème");
+        names.add("ÿĀ߿ࠀ￿");
+        names.add("珈琲");
+        names.add("Coffee ☕ and 😀");
+        names.add("\"quoted\" \\ back\\slash / slash  ");
+        names.add(null);
+        return names;
+    }
+
+    @ParameterizedTest
+    @MethodSource("names")
+    void testWriteMatchesJackson(String name) throws IOException {
+        Coffee coffee = new Coffee(name, 7);
+        coffee.setId(42L);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(coffee), write(coffee));
+    }
+
+    @Test
+    void testWriteNumbersMatchJackson() throws IOException {
+        for (long id : new long[]{0L, 9L, 10L, -1L, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            Coffee coffee = new Coffee("Coffee", (int) id);
+            coffee.setId(id);
+            assertArrayEquals(objectMapper.writeValueAsBytes(coffee), write(coffee));
+        }
+
+        // A coffee that has not been saved yet has no ID
+        Coffee unsaved = new Coffee("Unsaved", Integer.MIN_VALUE);
+        assertArrayEquals(objectMapper.writeValueAsBytes(unsaved), write(unsaved));
+    }
+
+    @Test
+    void testWriteArrayMatchesJackson() throws IOException {
+        assertArrayEquals(objectMapper.writeValueAsBytes(List.of()), writeArray(List.of()));
+
+        // Write enough coffees to span several buffers
+        List<Coffee> coffees = new ArrayList<>();
+        List<String> names = names();
+        for (int i = 0; i < 2000; i++) {
+            Coffee coffee = new Coffee(names.get(i % names.size()), i);
+            coffee.setId((long) i);
+            coffees.add(coffee);
+        }
+        assertArrayEquals(objectMapper.writeValueAsBytes(coffees), writeArray(coffees));
+    }
+
+    private byte[] write(Coffee coffee) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.write(coffee, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private byte[] writeArray(List<Coffee> coffees) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeArray(coffees.iterator(), outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1 @@
+TRUNCATE TABLE coffee;
\ No newline at end of file